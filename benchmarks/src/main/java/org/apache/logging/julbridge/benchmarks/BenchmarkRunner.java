@@ -0,0 +1,48 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the bridge benchmarks at 1, 4 and 16 threads with the GC profiler, so that every run
+ * reports both ops/s and the allocation rate per operation. Any arguments are passed to JMH as
+ * usual, e.g. a regular expression selecting the benchmarks to run:
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar org.apache.logging.julbridge.benchmarks.BenchmarkRunner BridgeHandler
+ * </pre>
+ */
+public final class BenchmarkRunner {
+
+    private static final int[] THREADS = { 1, 4, 16 };
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        for (int i = 0; i < THREADS.length; i++) {
+            ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine)
+                    .threads(THREADS[i]).addProfiler(GCProfiler.class);
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+            }
+            new Runner(options.build()).run();
+        }
+    }
+}
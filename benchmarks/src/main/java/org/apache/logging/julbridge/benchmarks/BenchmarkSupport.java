@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.io.Writer;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+
+/**
+ * Fixtures shared by the benchmarks.
+ */
+final class BenchmarkSupport {
+
+    static final String LOGGER_NAME = "org.apache.logging.julbridge.benchmarks.Target";
+    static final String PATTERN = "%d %-5p [%t] %c - %m%n";
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * An appender that formats every event with {@link #PATTERN} and discards the output, so the
+     * layout cost is part of the measurement but no I/O is.
+     */
+    static Appender newFormattingAppender() {
+        WriterAppender appender = new WriterAppender(new PatternLayout(PATTERN), new NullWriter());
+        appender.setImmediateFlush(false);
+        appender.setName("benchmark");
+        return appender;
+    }
+
+    /**
+     * A JUL record as <code>Logger.log(Level, String)</code> creates it: the source class and
+     * method are left for JUL to infer.
+     */
+    static LogRecord newRecord(java.util.logging.Level level, Throwable thrown) {
+        LogRecord record = new LogRecord(level, "benchmark message");
+        record.setLoggerName(LOGGER_NAME);
+        record.setThrown(thrown);
+        return record;
+    }
+
+    /**
+     * JUL handler that discards everything.
+     */
+    static final class NullHandler extends Handler {
+        public void publish(LogRecord record) {
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+
+    private static final class NullWriter extends Writer {
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        public void write(String str, int off, int len) {
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
+}
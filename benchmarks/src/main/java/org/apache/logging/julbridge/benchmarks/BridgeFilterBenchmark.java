@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Filter;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the Filter installed by {@link JULLog4jBridge#bridgeJULLogger(String)}. With
+ * <code>enabled=false</code> the log4j category is set one level above the record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BridgeFilterBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean enabled;
+
+    private java.util.logging.Logger julLogger;
+    private Filter filter;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        java.util.logging.LogManager.getLogManager().reset();
+        Logger.getRootLogger().addAppender(BenchmarkSupport.newFormattingAppender());
+        Logger.getRootLogger().setLevel(enabled ? Level.INFO : Level.WARN);
+        JULLog4jBridge.bridgeJULLogger(BenchmarkSupport.LOGGER_NAME);
+        julLogger = java.util.logging.Logger.getLogger(BenchmarkSupport.LOGGER_NAME);
+        filter = julLogger.getFilter();
+    }
+
+    @TearDown
+    public void tearDown() {
+        julLogger.setFilter(null);
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public boolean isLoggable() {
+        return filter.isLoggable(BenchmarkSupport.newRecord(java.util.logging.Level.INFO, null));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.logging.julbridge.JULBridgeLatency;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the handler installed by {@link JULLog4jBridge#assimilate()}, publishing a fresh
+ * record per operation the way a JUL Logger does. With <code>enabled=false</code> the log4j
+ * category is set one level above the record. With <code>latency=true</code> every stage is
+ * timed into {@link JULBridgeLatency} histograms. {@link #publishSameRecord()} publishes one
+ * record over and over, so the <code>gc</code> profiler reports what the handler itself
+ * allocates; with <code>enabled=false</code> that should be nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BridgeHandlerBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean enabled;
+
+    @Param({ "false", "true" })
+    public boolean latency;
+
+    private Handler handler;
+    private LogRecord record;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().addAppender(BenchmarkSupport.newFormattingAppender());
+        Logger.getRootLogger().setLevel(enabled ? Level.INFO : Level.WARN);
+        JULLog4jEventConverter converter = new JULLog4jEventConverter();
+        if (latency) {
+            converter.setLatency(new JULBridgeLatency());
+        }
+        JULLog4jBridge.assimilate(converter, false);
+        handler = java.util.logging.Logger.getLogger("").getHandlers()[0];
+        record = BenchmarkSupport.newRecord(java.util.logging.Level.INFO, null);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public void publish() {
+        handler.publish(BenchmarkSupport.newRecord(java.util.logging.Level.INFO, null));
+    }
+
+    @Benchmark
+    public void publishSameRecord() {
+        handler.publish(record);
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import org.apache.log4j.LogManager;
+import org.apache.logging.julbridge.JULBridgeLogManager;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.openjdk.jmh.annotations.Fork;
+
+/**
+ * Runs the benchmarks of {@link LogManagerBenchmark} in a JVM whose JUL LogManager is
+ * {@link JULBridgeLogManager}, so the JUL Logger is backed by its log4j Logger.
+ */
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.manager=org.apache.logging.julbridge.JULBridgeLogManager")
+public class BridgeLogManagerBenchmark extends LogManagerBenchmark {
+
+    protected void assimilate() {
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository());
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import org.apache.log4j.Level;
+import org.apache.logging.julbridge.JULLevelConverter;
+
+/**
+ * The original default level mapping, a chain of <code>equals</code> comparisons, kept as the
+ * baseline for {@link LevelConverterBenchmark}.
+ */
+public class EqualsChainLevelConverter implements JULLevelConverter {
+
+    public Level convertJuliLevel(java.util.logging.Level juliLevel) {
+        if (juliLevel.equals(java.util.logging.Level.FINEST)) {
+            return Level.TRACE;
+        } else if (juliLevel.equals(java.util.logging.Level.FINER)) {
+            return Level.DEBUG;
+        } else if (juliLevel.equals(java.util.logging.Level.FINE)) {
+            return Level.DEBUG;
+        } else if (juliLevel.equals(java.util.logging.Level.INFO)) {
+            return Level.INFO;
+        } else if (juliLevel.equals(java.util.logging.Level.WARNING)) {
+            return Level.WARN;
+        } else if (juliLevel.equals(java.util.logging.Level.SEVERE)) {
+            return Level.ERROR;
+        } else if (juliLevel.equals(java.util.logging.Level.ALL)) {
+            return Level.ALL;
+        } else if (juliLevel.equals(java.util.logging.Level.OFF)) {
+            return Level.OFF;
+        }
+        return Level.DEBUG;
+    }
+
+    public java.util.logging.Level convertLog4jLevel(Level log4jLevel) {
+        if (log4jLevel.equals(Level.TRACE)) {
+            return java.util.logging.Level.FINEST;
+        } else if (log4jLevel.equals(Level.DEBUG)) {
+            return java.util.logging.Level.FINER;
+        } else if (log4jLevel.equals(Level.INFO)) {
+            return java.util.logging.Level.INFO;
+        } else if (log4jLevel.equals(Level.WARN)) {
+            return java.util.logging.Level.WARNING;
+        } else if (log4jLevel.equals(Level.ERROR)) {
+            return java.util.logging.Level.SEVERE;
+        } else if (log4jLevel.equals(Level.FATAL)) {
+            return java.util.logging.Level.SEVERE;
+        } else if (log4jLevel.equals(Level.ALL)) {
+            return java.util.logging.Level.ALL;
+        } else if (log4jLevel.equals(Level.OFF)) {
+            return java.util.logging.Level.OFF;
+        }
+        return java.util.logging.Level.FINE;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JULLog4jEventConverter#convert(java.util.logging.LogRecord)} on its own, with and
+ * without a throwable attached to the record, and with eager or deferred conversion.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventConverterBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean withThrowable;
+
+    @Param({ "false", "true" })
+    public boolean deferred;
+
+    private JULLog4jEventConverter converter;
+    private Throwable thrown;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        converter = new JULLog4jEventConverter(LogManager.getLoggerRepository());
+        converter.setDeferred(deferred);
+        thrown = withThrowable ? new IllegalStateException("benchmark") : null;
+    }
+
+    @Benchmark
+    public LoggingEvent convert() {
+        return converter.convert(BenchmarkSupport.newRecord(java.util.logging.Level.INFO, thrown));
+    }
+}
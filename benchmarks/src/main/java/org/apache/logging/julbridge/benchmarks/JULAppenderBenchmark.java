@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.jul.ConcurrentJULAppender;
+import org.apache.log4j.jul.JULAppender;
+import org.apache.log4j.spi.LoggingEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link JULAppender} delivering log4j events to a JUL root Logger whose only handler
+ * discards everything. The <code>concurrent</code> variant uses {@link ConcurrentJULAppender},
+ * whose throughput should grow with the number of benchmark threads while the synchronized one
+ * stays flat. That is only visible on a machine with several cores, running e.g. with
+ * <code>-t 1</code>, <code>-t 2</code>, <code>-t 4</code> and <code>-t 8</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JULAppenderBenchmark {
+
+    @Param({ "synchronized", "concurrent" })
+    public String appenderType;
+
+    private Logger logger;
+    private JULAppender appender;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        java.util.logging.LogManager.getLogManager().reset();
+        java.util.logging.Logger.getLogger("").addHandler(new BenchmarkSupport.NullHandler());
+        logger = Logger.getLogger(BenchmarkSupport.LOGGER_NAME);
+        PatternLayout layout = new PatternLayout(BenchmarkSupport.PATTERN);
+        appender = "concurrent".equals(appenderType) ? new ConcurrentJULAppender(layout)
+                : new JULAppender(layout);
+        appender.activateOptions();
+    }
+
+    @TearDown
+    public void tearDown() {
+        appender.close();
+        java.util.logging.LogManager.getLogManager().reset();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public void append() {
+        appender.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO,
+                "benchmark message", null));
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.logging.julbridge.JULLevelConverter;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the table driven {@link JULLog4jEventConverter#DEFAULT_LEVEL_CONVERTER} with the
+ * original chain of <code>equals</code> comparisons, cycling through all standard levels so the
+ * late branches of the chain are measured too.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LevelConverterBenchmark {
+
+    private static final java.util.logging.Level[] JULI_LEVELS = { java.util.logging.Level.ALL,
+            java.util.logging.Level.FINEST, java.util.logging.Level.FINER,
+            java.util.logging.Level.FINE, java.util.logging.Level.CONFIG,
+            java.util.logging.Level.INFO, java.util.logging.Level.WARNING,
+            java.util.logging.Level.SEVERE, java.util.logging.Level.OFF };
+
+    private static final Level[] LOG4J_LEVELS = { Level.ALL, Level.TRACE, Level.DEBUG, Level.INFO,
+            Level.WARN, Level.ERROR, Level.FATAL, Level.OFF };
+
+    @Param({ "table", "equals" })
+    public String converterType;
+
+    private JULLevelConverter converter;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        converter = "table".equals(converterType) ? JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER
+                : new EqualsChainLevelConverter();
+    }
+
+    @Benchmark
+    public Level convertJuliLevel() {
+        index = (index + 1) % JULI_LEVELS.length;
+        return converter.convertJuliLevel(JULI_LEVELS[index]);
+    }
+
+    @Benchmark
+    public java.util.logging.Level convertLog4jLevel() {
+        index = (index + 1) % LOG4J_LEVELS.length;
+        return converter.convertLog4jLevel(LOG4J_LEVELS[index]);
+    }
+}
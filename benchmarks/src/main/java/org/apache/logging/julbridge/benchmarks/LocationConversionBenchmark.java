@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures what the bridge allocates to post a record to an appender that reads its location, with
+ * eager or deferred conversion, or with the location shared per thread
+ * ({@link JULLog4jEventConverter#setReuseLocationInfo(boolean)}). The same record, with its source
+ * already set, is published every time and the appender does not format anything, so
+ * <code>-prof gc</code> reports the cost of the conversion alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocationConversionBenchmark {
+
+    @Param({ "eager", "deferred", "reuse" })
+    public String conversion;
+
+    private Handler handler;
+    private LogRecord record;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().addAppender(new LocationReadingAppender(blackhole));
+        JULLog4jEventConverter converter = new JULLog4jEventConverter(LogManager
+                .getLoggerRepository());
+        converter.setDeferred("deferred".equals(conversion));
+        converter.setReuseLocationInfo("reuse".equals(conversion));
+        JULLog4jBridge.assimilate(converter, false);
+        handler = java.util.logging.Logger.getLogger("").getHandlers()[0];
+
+        record = BenchmarkSupport.newRecord(java.util.logging.Level.INFO, null);
+        record.setSourceClassName(LocationConversionBenchmark.class.getName());
+        record.setSourceMethodName("publish");
+    }
+
+    @TearDown
+    public void tearDown() {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public void publish() {
+        handler.publish(record);
+    }
+
+    /**
+     * Reads the location and message of every event, the way a layout printing them would.
+     */
+    private static final class LocationReadingAppender extends WriterAppender {
+        private final Blackhole blackhole;
+
+        LocationReadingAppender(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        public void append(LoggingEvent event) {
+            LocationInfo location = event.getLocationInformation();
+            blackhole.consume(location.getClassName());
+            blackhole.consume(location.getMethodName());
+            blackhole.consume(location.fullInfo);
+            blackhole.consume(event.getRenderedMessage());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a JUL Logger of the default LogManager, with the bridge assimilated and log4j levels
+ * propagated, to compare with {@link BridgeLogManagerBenchmark}. Disabled records are measured
+ * next to log4j's own <code>debug</code> for reference.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogManagerBenchmark {
+
+    private java.util.logging.Logger julLogger;
+    private Logger log4jLogger;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().addAppender(BenchmarkSupport.newFormattingAppender());
+        Logger.getRootLogger().setLevel(Level.INFO);
+        log4jLogger = Logger.getLogger(BenchmarkSupport.LOGGER_NAME);
+        julLogger = java.util.logging.Logger.getLogger(BenchmarkSupport.LOGGER_NAME);
+        assimilate();
+    }
+
+    /**
+     * Assimilates the bridge once log4j is configured.
+     */
+    protected void assimilate() {
+        JULLog4jBridge.assimilate(new JULLog4jEventConverter(), true);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public void julDisabled() {
+        julLogger.fine("benchmark message");
+    }
+
+    @Benchmark
+    public void julEnabled() {
+        julLogger.logp(java.util.logging.Level.INFO, "Target", "log", "benchmark message");
+    }
+
+    @Benchmark
+    public void log4jDisabled() {
+        log4jLogger.debug("benchmark message");
+    }
+}
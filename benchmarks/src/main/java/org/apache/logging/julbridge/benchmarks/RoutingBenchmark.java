@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures logging through a JUL Logger a few levels below the root Logger once the bridge is
+ * assimilated, with records passed up to the root Logger's handler or routed directly
+ * ({@link JULLog4jBridge#assimilate(JULLog4jEventConverter, boolean, boolean)}). The caller is
+ * given with <code>logp</code> so JUL's stack walk is not part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+
+    @Param({ "false", "true" })
+    public boolean routeDirectly;
+
+    private java.util.logging.Logger julLogger;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().addAppender(BenchmarkSupport.newFormattingAppender());
+        julLogger = java.util.logging.Logger.getLogger(BenchmarkSupport.LOGGER_NAME);
+        JULLog4jBridge.assimilate(new JULLog4jEventConverter(), false, routeDirectly);
+    }
+
+    @TearDown
+    public void tearDown() {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public void log() {
+        julLogger.logp(java.util.logging.Level.INFO, "Target", "log", "benchmark message");
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.logging.julbridge.JULLog4jBridge;
+import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.apache.logging.julbridge.JULRecordThrottle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the bridge handler publishing the same record over and over with a
+ * {@link JULRecordThrottle} that lets nearly every record through (<code>mostlyAdmitted</code>), or
+ * suppresses nearly all of them, against no throttle at all. Run with several threads through
+ * {@link BenchmarkRunner} to see whether the throttle table becomes a point of contention.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ThrottleBenchmark {
+
+    @Param({ "none", "mostlyAdmitted", "mostlySuppressed" })
+    public String throttle;
+
+    private Handler handler;
+
+    @Setup
+    public void setUp() {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().addAppender(BenchmarkSupport.newFormattingAppender());
+        JULLog4jEventConverter converter = new JULLog4jEventConverter(LogManager
+                .getLoggerRepository());
+        if ("mostlyAdmitted".equals(throttle)) {
+            converter.setThrottle(new JULRecordThrottle(1e9, Integer.MAX_VALUE));
+        } else if ("mostlySuppressed".equals(throttle)) {
+            converter.setThrottle(new JULRecordThrottle(10, 10));
+        }
+        JULLog4jBridge.assimilate(converter, false);
+        handler = java.util.logging.Logger.getLogger("").getHandlers()[0];
+    }
+
+    @TearDown
+    public void tearDown() {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    @Benchmark
+    public void publish() {
+        handler.publish(BenchmarkSupport.newRecord(java.util.logging.Level.WARNING, null));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.log4j.jul;
+
+import org.apache.log4j.Layout;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * A {@link JULAppender} that lets any number of threads append at the same
+ * time.<br>
+ * <br>
+ * {@link org.apache.log4j.AppenderSkeleton#doAppend(LoggingEvent)} is
+ * synchronized, so every thread logging through a JULAppender waits for the
+ * others even though JUL's <tt>Logger.log</tt> is thread safe. This appender
+ * checks the threshold and filters and appends without holding a lock.<br>
+ * <br>
+ * Layouts are generally not thread safe. A plain {@link PatternLayout} is
+ * therefore copied once per thread, and any other layout is used while holding
+ * its own lock.<br>
+ * <br>
+ * Configuration is identical to JULAppender; for example:<br>
+ * <br>
+ * <tt>
+ * log4j.appender.julAppender=org.apache.log4j.jul.ConcurrentJULAppender
+ * </tt><br>
+ */
+public class ConcurrentJULAppender extends JULAppender {
+
+    private final ThreadLocal<LayoutCopy> layoutCopies = new ThreadLocal<LayoutCopy>();
+
+    /** Creates a new appender with no special layout */
+    public ConcurrentJULAppender() {
+    }
+
+    /** Creates a new appender with the specified layout */
+    public ConcurrentJULAppender(Layout layout) {
+        super(layout);
+    }
+
+    /**
+     * Same as the inherited method, without the synchronization.
+     */
+    public void doAppend(LoggingEvent event) {
+        if (closed) {
+            LogLog.error("Attempted to append to closed appender named [" + name + "].");
+            return;
+        }
+        if (!isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+        Filter f = headFilter;
+        FILTER_LOOP: while (f != null) {
+            switch (f.decide(event)) {
+            case Filter.DENY:
+                return;
+            case Filter.ACCEPT:
+                break FILTER_LOOP;
+            case Filter.NEUTRAL:
+                f = f.getNext();
+            }
+        }
+        append(event);
+    }
+
+    protected String format(LoggingEvent loggingEvent) {
+        Layout localLayout = layout;
+        if (localLayout == null) {
+            return loggingEvent.getRenderedMessage();
+        }
+        if (localLayout.getClass() == PatternLayout.class) {
+            PatternLayout patternLayout = (PatternLayout) localLayout;
+            String pattern = patternLayout.getConversionPattern();
+            if (pattern != null) {
+                return copyOf(patternLayout, pattern).format(loggingEvent);
+            }
+        }
+        synchronized (localLayout) {
+            return localLayout.format(loggingEvent);
+        }
+    }
+
+    private PatternLayout copyOf(PatternLayout original, String pattern) {
+        LayoutCopy copy = layoutCopies.get();
+        if (copy == null || copy.original != original || !copy.pattern.equals(pattern)) {
+            copy = new LayoutCopy(original, pattern);
+            layoutCopies.set(copy);
+        }
+        return copy.layout;
+    }
+
+    /**
+     * A thread's private copy of a PatternLayout, remembering what it was
+     * copied from so changes to the layout are picked up.
+     */
+    private static final class LayoutCopy {
+        final PatternLayout original;
+        final String pattern;
+        final PatternLayout layout;
+
+        LayoutCopy(PatternLayout original, String pattern) {
+            this.original = original;
+            this.pattern = pattern;
+            this.layout = new PatternLayout(pattern);
+        }
+    }
+}
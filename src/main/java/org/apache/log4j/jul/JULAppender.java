@@ -16,11 +16,22 @@
 
 package org.apache.log4j.jul;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
 import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.ErrorCode;
 import org.apache.log4j.spi.LoggingEvent;
 import org.apache.log4j.AppenderSkeleton;
 import org.apache.log4j.Layout;
 import org.apache.log4j.Level;
+import org.apache.logging.julbridge.JULBridgeMetrics;
 import org.apache.logging.julbridge.JULLevelConverter;
 import org.apache.logging.julbridge.JULLog4jEventConverter;
 
@@ -110,6 +121,25 @@ import org.apache.logging.julbridge.JULLog4jEventConverter;
  * LogLog.<br>
  * <br>
  * 
+ * 4. When <tt>Async</tt> is set to true, events are queued in a buffer of
+ * <tt>BufferSize</tt> events and formatted and logged to JUL by a background
+ * thread, so JUL handlers no longer run while the log4j locks are held. The
+ * thread-dependent parts of an event (NDC, MDC, thread name) are captured
+ * before it is queued, and so is the location when <tt>LocationInfo</tt> is
+ * true. When the buffer is full the appender waits for room if
+ * <tt>Blocking</tt> is true (the default), otherwise the event is discarded
+ * and the number of discarded events is reported to LogLog. {@link #close()}
+ * logs every queued event before it returns.<br>
+ * <br>
+ * 
+ * 5. {@link #activateOptions()} registers the {@link JULBridgeMetrics} of the
+ * appender with the platform MBean server as
+ * <tt>org.apache.logging.julbridge:type=JULAppender,name="appender name"</tt>,
+ * counting the events received, rejected by the level of the JUL Logger,
+ * formatted and logged to JUL, and the depth of the buffer in async mode.
+ * {@link #close()} unregisters them.<br>
+ * <br>
+ * 
  * @author Sagi Mann (sagimann@gmail.com)
  * @author psmith
  */
@@ -118,6 +148,30 @@ public class JULAppender extends AppenderSkeleton {
     private JULLevelConverter levelConverter = JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER;
     private String customLevelConverterClass = null;
 
+    /** The default number of events buffered in async mode. */
+    public static final int DEFAULT_BUFFER_SIZE = 128;
+
+    private static final long WORKER_POLL_MILLIS = 100;
+
+    private boolean async;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private boolean blocking = true;
+    private boolean locationInfo;
+
+    private volatile AsyncWorker asyncWorker;
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong reportedDiscards = new AtomicLong();
+
+    private final ConcurrentMap<String, java.util.logging.Logger> julLoggers = new ConcurrentHashMap<String, java.util.logging.Logger>();
+
+    private final JULBridgeMetrics metrics = new JULBridgeMetrics() {
+        public int getQueueDepth() {
+            AsyncWorker localWorker = asyncWorker;
+            return localWorker == null ? -1 : localWorker.queue.size();
+        }
+    };
+    private ObjectName metricsName;
+
     /** Creates a new appender with no special layout */
     public JULAppender() {
     }
@@ -139,6 +193,13 @@ public class JULAppender extends AppenderSkeleton {
                                 customLevelConverterClass + "'", e);
             }
         }
+
+        julLoggers.clear();
+        AsyncWorker previous = asyncWorker;
+        asyncWorker = async ? new AsyncWorker(Math.max(1, bufferSize)) : null;
+        stopWorker(previous);
+        JULBridgeMetrics.unregister(metricsName);
+        metricsName = metrics.register("JULAppender", String.valueOf(getName()));
         
         super.activateOptions();
     }
@@ -151,16 +212,87 @@ public class JULAppender extends AppenderSkeleton {
         return true;
     }
 
-    public void close() {
+    /**
+     * Closes the appender. In async mode, every queued event is logged before
+     * this method returns.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        AsyncWorker previous = asyncWorker;
+        asyncWorker = null;
+        stopWorker(previous);
+        julLoggers.clear();
+        JULBridgeMetrics.unregister(metricsName);
+        metricsName = null;
+    }
+
+    /**
+     * Stops a worker no longer published to appending threads, and logs what
+     * is left in its queue while holding the appender lock. Threads that were
+     * still queuing to it log their own events, see {@link AsyncWorker#enqueue}.
+     */
+    private void stopWorker(AsyncWorker stopped) {
+        if (stopped == null) {
+            return;
+        }
+        stopped.stopped = true;
+        if (stopped.thread != Thread.currentThread()) {
+            try {
+                stopped.thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            stopped.drain();
+        }
+        reportDiscards();
     }
 
     /**
      * Append a log event at the appropriate JUL level, depending on the log4j
-     * level.
+     * level. In async mode the event is queued for the background thread.
      */
     protected void append(LoggingEvent loggingEvent) {
-        java.util.logging.Logger logger = java.util.logging.Logger
-                .getLogger(loggingEvent.getLoggerName());
+        metrics.received(levelConverter.convertLog4jLevel(loggingEvent.getLevel()),
+                loggingEvent.getLoggerName());
+        AsyncWorker localWorker = asyncWorker;
+        if (localWorker == null || Thread.currentThread() == localWorker.thread) {
+            dispatch(loggingEvent);
+            return;
+        }
+
+        // capture what depends on the logging thread before handing the event over
+        loggingEvent.getNDC();
+        loggingEvent.getThreadName();
+        loggingEvent.getMDCCopy();
+        loggingEvent.getRenderedMessage();
+        loggingEvent.getThrowableStrRep();
+        if (locationInfo) {
+            loggingEvent.getLocationInformation();
+        }
+
+        localWorker.enqueue(loggingEvent);
+    }
+
+    private void reportDiscards() {
+        long total = discarded.get();
+        long reported = reportedDiscards.get();
+        if (total != reported && reportedDiscards.compareAndSet(reported, total)) {
+            LogLog.warn("JULAppender [" + getName() + "] discarded " + (total - reported)
+                    + " events because its buffer was full.");
+        }
+    }
+
+    /**
+     * Formats the event and logs it to JUL, unless the JUL Logger would
+     * discard it anyway.
+     */
+    private void dispatch(LoggingEvent loggingEvent) {
+        java.util.logging.Logger logger = getJULLogger(loggingEvent.getLoggerName());
         if (logger == null) {
             LogLog
                     .warn("Cannot obtain JUL " +
@@ -179,24 +311,68 @@ public class JULAppender extends AppenderSkeleton {
         // that
         // the logging service will support optional layouts in the future...
 
-        String msg;
-        if (layout != null) {
-            msg = layout.format(loggingEvent);
-        } else {
-            msg = loggingEvent.getRenderedMessage();
-        }
-
-        // Split the level mapping logic into 2 sections for performance reasons
-        // -
-        // All low-level messages (debug, trace, etc) are separated from the
-        // more common-level messages (a complete binary tree is an
-        // overkill...):
-
         Level level = loggingEvent.getLevel();
 
         java.util.logging.Level jullevel = levelConverter
                 .convertLog4jLevel(level);
+        String loggerName = loggingEvent.getLoggerName();
+        if (!logger.isLoggable(jullevel)) {
+            metrics.rejectedByLevel(jullevel, loggerName);
+            return;
+        }
+
+        String msg = format(loggingEvent);
+        metrics.converted(jullevel, loggerName);
         logger.log(jullevel, msg);
+        metrics.delivered(jullevel, loggerName);
+    }
+
+    /**
+     * Returns the counts of the events this appender received.
+     */
+    public JULBridgeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the JUL Logger with the given name, looking it up in JUL only the
+     * first time. Keeping the Logger strongly referenced stops JUL from
+     * collecting it and forgetting any level set on it; since
+     * <tt>LogManager.reset()</tt> resets Loggers rather than replacing them,
+     * the cached instance stays the one JUL hands out.
+     * 
+     * @param name
+     * @return the Logger, or null if JUL provides none
+     */
+    private java.util.logging.Logger getJULLogger(String name) {
+        if (name == null) {
+            return java.util.logging.Logger.getLogger(name);
+        }
+        java.util.logging.Logger logger = julLoggers.get(name);
+        if (logger == null) {
+            logger = java.util.logging.Logger.getLogger(name);
+            if (logger != null) {
+                java.util.logging.Logger existing = julLoggers.putIfAbsent(name, logger);
+                if (existing != null) {
+                    logger = existing;
+                }
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * Formats the event with the layout, or returns the rendered message if
+     * there is no layout.
+     * 
+     * @param loggingEvent
+     * @return the message to log to JUL
+     */
+    protected String format(LoggingEvent loggingEvent) {
+        if (layout != null) {
+            return layout.format(loggingEvent);
+        }
+        return loggingEvent.getRenderedMessage();
     }
 
     /**
@@ -222,4 +398,145 @@ public class JULAppender extends AppenderSkeleton {
             String customLevelConverterClass) {
         this.customLevelConverterClass = customLevelConverterClass;
     }
+
+    /**
+     * Returns whether events are logged to JUL by a background thread.
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * When true, events are formatted and logged to JUL by a background thread.
+     * Takes effect on {@link #activateOptions()}. Defaults to false.
+     * 
+     * @param async
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of events that can be queued in async mode. Defaults to
+     * {@value #DEFAULT_BUFFER_SIZE}.
+     * 
+     * @param bufferSize
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public boolean isBlocking() {
+        return blocking;
+    }
+
+    /**
+     * When true (the default), appending waits for room if the async buffer is
+     * full, otherwise the event is discarded.
+     * 
+     * @param blocking
+     */
+    public void setBlocking(boolean blocking) {
+        this.blocking = blocking;
+    }
+
+    public boolean getLocationInfo() {
+        return locationInfo;
+    }
+
+    /**
+     * When true, the location of each event is captured before it is queued in
+     * async mode, so layouts can use it. Defaults to false.
+     * 
+     * @param locationInfo
+     */
+    public void setLocationInfo(boolean locationInfo) {
+        this.locationInfo = locationInfo;
+    }
+
+    /**
+     * Returns the number of events discarded because the async buffer was full.
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * A queue and the thread logging its events, published together so an
+     * appending thread always queues to the queue of a thread that was
+     * started for it.
+     */
+    private final class AsyncWorker implements Runnable {
+        final BlockingQueue<LoggingEvent> queue;
+        final Thread thread;
+        volatile boolean stopped;
+
+        AsyncWorker(int capacity) {
+            queue = new ArrayBlockingQueue<LoggingEvent>(capacity);
+            thread = new Thread(this, "JULAppender-Worker-" + getName());
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * Queues the event, or discards it if the queue is full and the
+         * appender is not blocking. A thread waiting for room gives up once the
+         * worker is stopped and logs the event itself. If the worker was
+         * stopped while the event was being queued, the queue may already have
+         * been drained, so what is left in it is logged by this thread.
+         */
+        void enqueue(LoggingEvent event) {
+            if (blocking) {
+                try {
+                    while (!queue.offer(event, WORKER_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        if (stopped) {
+                            dispatch(event);
+                            return;
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    discarded.incrementAndGet();
+                    return;
+                }
+            } else if (!queue.offer(event)) {
+                discarded.incrementAndGet();
+                return;
+            }
+            if (stopped) {
+                drain();
+            }
+        }
+
+        void drain() {
+            LoggingEvent event;
+            while ((event = queue.poll()) != null) {
+                dispatch(event);
+            }
+        }
+
+        public void run() {
+            while (!stopped) {
+                LoggingEvent event;
+                try {
+                    event = queue.poll(WORKER_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (event != null) {
+                    try {
+                        dispatch(event);
+                    } catch (RuntimeException e) {
+                        errorHandler.error("Failed to log event to JUL", e,
+                                ErrorCode.GENERIC_FAILURE, event);
+                    }
+                }
+                reportDiscards();
+            }
+        }
+    }
 }
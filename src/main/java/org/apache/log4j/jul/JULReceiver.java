@@ -16,15 +16,38 @@
 */
 package org.apache.log4j.jul;
 
+import java.util.Locale;
+
 import org.apache.log4j.component.plugins.Plugin;
 import org.apache.log4j.component.plugins.PluginSkeleton;
+import org.apache.logging.julbridge.AsyncJULBridgeHandler;
 import org.apache.logging.julbridge.JULLevelConverter;
 import org.apache.logging.julbridge.JULLog4jBridge;
 import org.apache.logging.julbridge.JULLog4jEventConverter;
+import org.apache.logging.julbridge.JULBridgeLatency;
+import org.apache.logging.julbridge.JULHeavyHitters;
+import org.apache.logging.julbridge.JULRecordThrottle;
 
 public class JULReceiver extends PluginSkeleton implements Plugin{
 
     private String levelConverterClassName;
+    private boolean propagateLevels;
+    private long levelCheckInterval;
+    private boolean async;
+    private int bufferSize = AsyncJULBridgeHandler.DEFAULT_BUFFER_SIZE;
+    private String overflowPolicy = AsyncJULBridgeHandler.OverflowPolicy.BLOCK.name();
+    private int batchSize = AsyncJULBridgeHandler.DEFAULT_BATCH_SIZE;
+    private long maxBatchDelay;
+    private boolean deferredConversion;
+    private boolean reuseLocationInfo;
+    private boolean captureMDC;
+    private double throttleRate;
+    private int throttleBurst = 100;
+    private long throttleSummaryInterval = JULRecordThrottle.DEFAULT_SUMMARY_INTERVAL;
+    private boolean directRouting;
+    private boolean latencyHistograms;
+    private long latencySummaryInterval;
+    private boolean heavyHitters;
     
     public void shutdown() {
         JULLog4jBridge.repatriate();
@@ -44,8 +67,309 @@ public class JULReceiver extends PluginSkeleton implements Plugin{
                 return;
             }
         }
-        JULLog4jBridge.assimilate(getLoggerRepository(), converter);
+        JULLog4jEventConverter eventConverter = new JULLog4jEventConverter(
+                getLoggerRepository(), converter);
+        eventConverter.setDeferred(deferredConversion);
+        eventConverter.setReuseLocationInfo(reuseLocationInfo);
+        eventConverter.setCaptureMDC(captureMDC);
+        if (throttleRate > 0) {
+            try {
+                eventConverter.setThrottle(new JULRecordThrottle(throttleRate, throttleBurst,
+                        throttleSummaryInterval));
+            } catch (IllegalArgumentException e) {
+                getLogger().error("Invalid throttle settings", e);
+                return;
+            }
+        }
+        if (latencyHistograms) {
+            try {
+                eventConverter.setLatency(new JULBridgeLatency(latencySummaryInterval));
+            } catch (IllegalArgumentException e) {
+                getLogger().error("Invalid latency summary interval", e);
+                return;
+            }
+        }
+        if (heavyHitters) {
+            eventConverter.setHeavyHitters(new JULHeavyHitters());
+        }
+        JULLog4jBridge.setLevelCheckInterval(levelCheckInterval);
+        if (async) {
+            AsyncJULBridgeHandler.OverflowPolicy policy;
+            try {
+                policy = AsyncJULBridgeHandler.OverflowPolicy.valueOf(overflowPolicy.trim()
+                        .toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException e) {
+                getLogger().error("Unknown overflow policy '" + overflowPolicy + "'", e);
+                return;
+            }
+            AsyncJULBridgeHandler handler = new AsyncJULBridgeHandler(eventConverter,
+                    bufferSize, policy);
+            handler.setBatchSize(batchSize);
+            handler.setMaxBatchDelay(maxBatchDelay);
+            JULLog4jBridge.assimilate(getLoggerRepository(), converter, propagateLevels, handler);
+        } else {
+            JULLog4jBridge.assimilate(eventConverter, propagateLevels, directRouting);
+        }
         active = true;
     }
 
+    /**
+     * Returns whether the level of each log4j category is copied onto the
+     * matching java.util.logging Logger.
+     */
+    public boolean isPropagateLevels() {
+        return propagateLevels;
+    }
+
+    /**
+     * When true, the level of each log4j category is copied onto the matching
+     * java.util.logging Logger so JUL rejects disabled records before they are
+     * published to the bridge. Defaults to false.
+     * 
+     * @param propagateLevels
+     */
+    public void setPropagateLevels(boolean propagateLevels) {
+        this.propagateLevels = propagateLevels;
+    }
+
+    public long getLevelCheckInterval() {
+        return levelCheckInterval;
+    }
+
+    /**
+     * Milliseconds between two passes copying every log4j level onto the
+     * java.util.logging Loggers, when levels are propagated, to pick up level
+     * changes log4j does not report, e.g. through JMX. Defaults to 0, which
+     * makes none.
+     * 
+     * @param levelCheckInterval
+     * @see JULLog4jBridge#setLevelCheckInterval(long)
+     */
+    public void setLevelCheckInterval(long levelCheckInterval) {
+        this.levelCheckInterval = levelCheckInterval;
+    }
+
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * When true, LogRecords are posted to log4j by a background thread through
+     * an {@link AsyncJULBridgeHandler}. Defaults to false.
+     * 
+     * @param async
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Sets the number of LogRecords that can be queued in async mode.
+     * 
+     * @param bufferSize
+     */
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    public String getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Sets what happens in async mode when the buffer is full: one of
+     * <code>BLOCK</code> (the default), <code>DROP_BELOW_LEVEL</code> or
+     * <code>DROP_OLDEST</code>.
+     * 
+     * @param overflowPolicy
+     */
+    public void setOverflowPolicy(String overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets the maximum number of LogRecords posted to log4j as one batch in
+     * async mode.
+     * 
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public long getMaxBatchDelay() {
+        return maxBatchDelay;
+    }
+
+    /**
+     * Sets how long, in microseconds, a batch waits to fill up in async mode.
+     * Defaults to 0.
+     * 
+     * @param maxBatchDelay
+     */
+    public void setMaxBatchDelay(long maxBatchDelay) {
+        this.maxBatchDelay = maxBatchDelay;
+    }
+
+    public boolean isDeferredConversion() {
+        return deferredConversion;
+    }
+
+    /**
+     * When true, the location, thread name and throwable of a LogRecord are
+     * only converted when an appender asks for them. Defaults to false.
+     * 
+     * @param deferredConversion
+     * @see JULLog4jEventConverter#setDeferred(boolean)
+     */
+    public void setDeferredConversion(boolean deferredConversion) {
+        this.deferredConversion = deferredConversion;
+    }
+
+    public boolean isReuseLocationInfo() {
+        return reuseLocationInfo;
+    }
+
+    /**
+     * When true, records posted to loggers whose appenders all write events
+     * out as they are appended (console and file appenders) share one
+     * location per thread instead of building their own. Defaults to false.
+     * 
+     * @param reuseLocationInfo
+     * @see JULLog4jEventConverter#setReuseLocationInfo(boolean)
+     */
+    public void setReuseLocationInfo(boolean reuseLocationInfo) {
+        this.reuseLocationInfo = reuseLocationInfo;
+    }
+
+    public boolean isCaptureMDC() {
+        return captureMDC;
+    }
+
+    /**
+     * When true, records handled on the thread that logged them carry the
+     * log4j MDC of that thread. Defaults to false.
+     * 
+     * @param captureMDC
+     * @see JULLog4jEventConverter#setCaptureMDC(boolean)
+     */
+    public void setCaptureMDC(boolean captureMDC) {
+        this.captureMDC = captureMDC;
+    }
+
+    public double getThrottleRate() {
+        return throttleRate;
+    }
+
+    /**
+     * Number of records per second let through for each group of records
+     * with the same logger, level and message. Defaults to 0, which lets
+     * every record through.
+     * 
+     * @param throttleRate
+     * @see JULRecordThrottle
+     */
+    public void setThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+    }
+
+    public int getThrottleBurst() {
+        return throttleBurst;
+    }
+
+    /**
+     * Number of similar records let through at once before the throttle
+     * rate applies. Defaults to 100.
+     * 
+     * @param throttleBurst
+     */
+    public void setThrottleBurst(int throttleBurst) {
+        this.throttleBurst = throttleBurst;
+    }
+
+    public long getThrottleSummaryInterval() {
+        return throttleSummaryInterval;
+    }
+
+    /**
+     * Minimum number of milliseconds between two reports of the records the
+     * throttle suppressed. Defaults to 10000.
+     * 
+     * @param throttleSummaryInterval
+     */
+    public void setThrottleSummaryInterval(long throttleSummaryInterval) {
+        this.throttleSummaryInterval = throttleSummaryInterval;
+    }
+
+    public boolean isDirectRouting() {
+        return directRouting;
+    }
+
+    /**
+     * When true, and not in async mode, every existing java.util.logging
+     * Logger gets a Handler posting straight to the log4j Logger of the same
+     * name instead of passing records up to the root Logger. Defaults to
+     * false.
+     * 
+     * @param directRouting
+     * @see JULLog4jBridge#assimilate(JULLog4jEventConverter, boolean, boolean)
+     */
+    public void setDirectRouting(boolean directRouting) {
+        this.directRouting = directRouting;
+    }
+
+    public boolean isLatencyHistograms() {
+        return latencyHistograms;
+    }
+
+    /**
+     * When true, the duration of each stage of posting a record to log4j is
+     * recorded into histograms registered with the platform MBean server.
+     * Defaults to false.
+     * 
+     * @param latencyHistograms
+     * @see JULBridgeLatency
+     */
+    public void setLatencyHistograms(boolean latencyHistograms) {
+        this.latencyHistograms = latencyHistograms;
+    }
+
+    public long getLatencySummaryInterval() {
+        return latencySummaryInterval;
+    }
+
+    /**
+     * Minimum number of milliseconds between two summaries of the latency
+     * histograms logged at INFO. Defaults to 0, which logs none.
+     * 
+     * @param latencySummaryInterval
+     */
+    public void setLatencySummaryInterval(long latencySummaryInterval) {
+        this.latencySummaryInterval = latencySummaryInterval;
+    }
+
+    public boolean isHeavyHitters() {
+        return heavyHitters;
+    }
+
+    /**
+     * When true, the JUL Loggers and messages posting the most records are
+     * counted and reported through an MBean registered with the platform MBean
+     * server. Defaults to false.
+     * 
+     * @param heavyHitters
+     * @see JULHeavyHitters
+     */
+    public void setHeavyHitters(boolean heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.Enumeration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AsyncAppender;
+import org.apache.log4j.Category;
+import org.apache.log4j.EnhancedPatternLayout;
+import org.apache.log4j.HTMLLayout;
+import org.apache.log4j.Layout;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.SimpleLayout;
+import org.apache.log4j.TTCCLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggerRepository;
+import org.apache.log4j.varia.DenyAllFilter;
+import org.apache.log4j.varia.LevelMatchFilter;
+import org.apache.log4j.varia.LevelRangeFilter;
+import org.apache.log4j.varia.NullAppender;
+import org.apache.log4j.varia.StringMatchFilter;
+import org.apache.log4j.xml.XMLLayout;
+
+/**
+ * <p>
+ * Remembers, per log4j {@link Category}, what the appenders its events reach (its own and those of
+ * its ancestors, up to the first non-additive one) do with them. The answer is worked out on first
+ * use and forgotten on every configuration change of the repository, including appenders being
+ * added or removed. Changing only the additivity of a category, or the layout or filters of an
+ * appender already attached, is not reported by log4j, and is picked up at the next configuration
+ * change. An answer worked out while the configuration changed is used once, but not remembered.
+ * </p>
+ */
+final class AppenderChains implements RepositoryWatcher.Listener {
+
+    private static final int RETAINS_EVENTS = 1;
+    private static final int NEEDS_LOCATION = 2;
+
+    /** Conversion characters of {@link PatternLayout} that print the location. */
+    private static final String LOCATION_CONVERSIONS = "CFLMl";
+
+    private final LoggerRepository repository;
+    private final ConcurrentMap<Category, Integer> profiles = new ConcurrentHashMap<Category, Integer>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile boolean watching;
+
+    AppenderChains(LoggerRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * Only {@link WriterAppender}s (console, file and their subclasses) and {@link NullAppender}s
+     * are known to be done with an event when <code>doAppend</code> returns. Any other appender,
+     * such as an {@link AsyncAppender} or one buffering events, may keep it.
+     * 
+     * @param category
+     * @return true unless every appender reached by events of the category is known not to keep
+     *         them
+     */
+    boolean retainsEvents(Category category) {
+        return (getProfile(category) & RETAINS_EVENTS) != 0;
+    }
+
+    /**
+     * The location is known not to be needed when every appender reached by events of the
+     * category is a {@link NullAppender}, an {@link AsyncAppender} without
+     * <code>LocationInfo</code>, or an appender whose filters are all standard log4j filters and
+     * whose layout is a {@link PatternLayout} or {@link EnhancedPatternLayout} without
+     * <code>%C</code>, <code>%F</code>, <code>%L</code>, <code>%M</code> or <code>%l</code>, an
+     * {@link HTMLLayout} or {@link XMLLayout} without <code>LocationInfo</code>, a
+     * {@link SimpleLayout} or a {@link TTCCLayout}.
+     * 
+     * @param category
+     * @return false if the events of the category are known never to be asked for their location
+     */
+    boolean needsLocation(Category category) {
+        return (getProfile(category) & NEEDS_LOCATION) != 0;
+    }
+
+    /**
+     * Same as {@link #needsLocation(Category)}, but only answers from what is already known, and
+     * never waits for the lock of a category, which appenders hold while appending.
+     * 
+     * @param category
+     * @return false if the events of the category are known never to be asked for their location
+     */
+    boolean mayNeedLocation(Category category) {
+        Integer profile = profiles.get(category);
+        return profile == null || (profile.intValue() & NEEDS_LOCATION) != 0;
+    }
+
+    private int getProfile(Category category) {
+        Integer profile = profiles.get(category);
+        if (profile == null) {
+            int seen = generation.get();
+            profile = Integer.valueOf(profileOf(category));
+            if (watching) {
+                profiles.put(category, profile);
+                if (generation.get() != seen) {
+                    profiles.remove(category, profile);
+                }
+            }
+        }
+        return profile.intValue();
+    }
+
+    private static int profileOf(Category category) {
+        int profile = 0;
+        for (Category c = category; c != null; c = c.getParent()) {
+            for (Enumeration e = c.getAllAppenders(); e.hasMoreElements();) {
+                Appender appender = (Appender) e.nextElement();
+                if (!(appender instanceof WriterAppender) && !(appender instanceof NullAppender)) {
+                    profile |= RETAINS_EVENTS;
+                }
+                if (needsLocation(appender)) {
+                    profile |= NEEDS_LOCATION;
+                }
+            }
+            if (!c.getAdditivity()) {
+                break;
+            }
+        }
+        return profile;
+    }
+
+    private static boolean needsLocation(Appender appender) {
+        if (appender instanceof NullAppender) {
+            return false;
+        }
+        if (appender instanceof AsyncAppender) {
+            return ((AsyncAppender) appender).getLocationInfo();
+        }
+        for (Filter f = appender.getFilter(); f != null; f = f.getNext()) {
+            if (!(f instanceof LevelMatchFilter) && !(f instanceof LevelRangeFilter)
+                    && !(f instanceof StringMatchFilter) && !(f instanceof DenyAllFilter)) {
+                return true;
+            }
+        }
+        Layout layout = appender.getLayout();
+        if (layout instanceof PatternLayout) {
+            return printsLocation(((PatternLayout) layout).getConversionPattern());
+        } else if (layout instanceof EnhancedPatternLayout) {
+            return printsLocation(((EnhancedPatternLayout) layout).getConversionPattern());
+        } else if (layout instanceof HTMLLayout) {
+            return ((HTMLLayout) layout).getLocationInfo();
+        } else if (layout instanceof XMLLayout) {
+            return ((XMLLayout) layout).getLocationInfo();
+        }
+        return !(layout instanceof SimpleLayout) && !(layout instanceof TTCCLayout);
+    }
+
+    /**
+     * @param pattern
+     *            conversion pattern of a {@link PatternLayout}
+     * @return true if it contains a location conversion, with or without format modifiers
+     */
+    static boolean printsLocation(String pattern) {
+        if (pattern == null) {
+            return false;
+        }
+        int length = pattern.length();
+        for (int i = 0; i < length - 1; i++) {
+            if (pattern.charAt(i) != '%') {
+                continue;
+            }
+            int j = i + 1;
+            if (pattern.charAt(j) == '%') {
+                i = j;
+                continue;
+            }
+            while (j < length && "-.0123456789".indexOf(pattern.charAt(j)) >= 0) {
+                j++;
+            }
+            if (j < length && LOCATION_CONVERSIONS.indexOf(pattern.charAt(j)) >= 0) {
+                return true;
+            }
+            i = j - 1;
+        }
+        return false;
+    }
+
+    /**
+     * Starts remembering, and forgetting on every configuration change of the repository.
+     */
+    void start() {
+        RepositoryWatcher.getInstance(repository).addListener(this);
+        watching = true;
+    }
+
+    /**
+     * Stops remembering and forgets every category.
+     */
+    void stop() {
+        watching = false;
+        generation.incrementAndGet();
+        RepositoryWatcher.getInstance(repository).removeListener(this);
+        profiles.clear();
+    }
+
+    public void levelChanged(Logger logger) {
+    }
+
+    public void appendersChanged(Category category) {
+        configurationChanged();
+    }
+
+    public void configurationChanged() {
+        generation.incrementAndGet();
+        profiles.clear();
+    }
+}
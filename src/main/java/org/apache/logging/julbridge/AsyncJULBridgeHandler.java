@@ -0,0 +1,485 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.spi.LoggerRepository;
+
+/**
+ * <p>
+ * Asynchronous variant of the bridge {@link Handler}. Records are checked against the log4j level
+ * on the calling thread, then handed to a bounded lock-free {@link RingBuffer} and posted to log4j
+ * by a single daemon thread, so slow appenders no longer hold up the threads that log.
+ * </p>
+ * <p>
+ * The caller of a record is inferred before the record is queued, because JUL can only find it
+ * by walking the stack of the logging thread. That walk is skipped when none of the appenders the
+ * record would reach can print its location. The name of the logging thread is remembered so
+ * the event can carry it.
+ * </p>
+ * <p>
+ * What happens when the buffer is full is decided by the {@link OverflowPolicy}.
+ * {@link #flush()} waits until every record published before the call has been posted, and
+ * {@link #close()} drains the buffer and stops the thread. JUL closes the handler on
+ * <code>LogManager.reset()</code>, so {@link JULLog4jBridge#repatriate()} drains it as well.
+ * </p>
+ * <p>
+ * The thread drains the buffer in batches of up to {@link #setBatchSize(int) batchSize} records,
+ * optionally waiting up to {@link #setMaxBatchDelay(long) maxBatchDelay} microseconds for a batch
+ * to fill. Consecutive events of a batch posted to the same category are appended together, with a
+ * single lock acquisition per category in the hierarchy instead of one per event, and the events
+ * keep the order they were published in.
+ * </p>
+ * <p>
+ * Records published from the thread that posts to log4j (e.g. by an appender that itself logs
+ * through JUL) are posted directly, so the thread never waits on its own buffer.
+ * </p>
+ *
+ * @see JULLog4jBridge#assimilate(LoggerRepository, JULLevelConverter, boolean, Handler)
+ */
+public class AsyncJULBridgeHandler extends Handler {
+
+    /**
+     * Decides what {@link AsyncJULBridgeHandler#publish(LogRecord)} does when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until there is room.
+         */
+        BLOCK,
+        /**
+         * Discard records below the drop threshold, wait for room for all others.
+         */
+        DROP_BELOW_LEVEL,
+        /**
+         * Discard the oldest queued record to make room.
+         */
+        DROP_OLDEST
+    }
+
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    public static final int DEFAULT_BATCH_SIZE = 128;
+
+    private static final long IDLE_PARK_NANOS = 10L * 1000 * 1000;
+    private static final long WAIT_PARK_NANOS = 100L * 1000;
+
+    private static final AtomicInteger DISPATCHER_COUNT = new AtomicInteger();
+
+    private final JULBridgeHandler delegate;
+    private final RingBuffer<LogRecord> buffer;
+    private final OverflowPolicy overflowPolicy;
+    private volatile Level dropThreshold = Level.WARNING;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile long maxBatchDelayNanos;
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong discarded = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchedRecords = new AtomicLong();
+    private final AtomicLong totalDrainNanos = new AtomicLong();
+    private volatile int maxBatchSize;
+
+    private final Thread dispatcher;
+    private volatile boolean dispatcherParked;
+    private volatile boolean closed;
+
+    public AsyncJULBridgeHandler(LoggerRepository repository, JULLevelConverter levelConverter) {
+        this(repository, levelConverter, DEFAULT_BUFFER_SIZE, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * @param repository
+     *            repository to post the records to
+     * @param levelConverter
+     *            converts the JUL record levels
+     * @param bufferSize
+     *            number of records that can be queued, rounded up to a power of two
+     * @param overflowPolicy
+     *            what to do when the buffer is full
+     */
+    public AsyncJULBridgeHandler(LoggerRepository repository, JULLevelConverter levelConverter,
+            int bufferSize, OverflowPolicy overflowPolicy) {
+        this(new JULLog4jEventConverter(repository, levelConverter), bufferSize, overflowPolicy);
+    }
+
+    /**
+     * @param converter
+     *            converts the records for the repository it was created with
+     * @param bufferSize
+     *            number of records that can be queued, rounded up to a power of two
+     * @param overflowPolicy
+     *            what to do when the buffer is full
+     */
+    public AsyncJULBridgeHandler(JULLog4jEventConverter converter, int bufferSize,
+            OverflowPolicy overflowPolicy) {
+        this.buffer = new RingBuffer<LogRecord>(bufferSize);
+        this.delegate = new JULBridgeHandler(converter.getRepository(), converter,
+                new JULBridgeMetrics() {
+                    public int getQueueDepth() {
+                        return buffer.size();
+                    }
+                });
+        this.overflowPolicy = overflowPolicy;
+        this.dispatcher = new Thread(new Dispatcher(), "JULBridgeHandler-Dispatcher-"
+                + DISPATCHER_COUNT.incrementAndGet());
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public void publish(LogRecord record) {
+        if (closed || Thread.currentThread() == dispatcher) {
+            delegate.publish(record);
+            return;
+        }
+        Category category = delegate.receive(record);
+        if (category == null) {
+            return;
+        }
+        if (delegate.admit(record)) {
+            if (delegate.mayNeedLocation(category)) {
+                record.getSourceClassName();
+            }
+            ThreadNames.remember(record);
+            enqueue(record);
+        }
+        List<LogRecord> summaries = delegate.takeSummaries();
+        for (int i = 0; i < summaries.size(); i++) {
+            enqueue(summaries.get(i));
+        }
+    }
+
+    private void enqueue(LogRecord record) {
+        published.incrementAndGet();
+        if (buffer.offer(record)) {
+            signalDispatcher();
+            drainIfClosed();
+            return;
+        }
+        switch (overflowPolicy) {
+        case DROP_BELOW_LEVEL:
+            if (record.getLevel().intValue() < dropThreshold.intValue()) {
+                discard();
+                return;
+            }
+            waitForRoom(record);
+            break;
+        case DROP_OLDEST:
+            while (!buffer.offer(record)) {
+                if (buffer.poll() != null) {
+                    discard();
+                }
+            }
+            break;
+        default:
+            waitForRoom(record);
+        }
+        signalDispatcher();
+        drainIfClosed();
+    }
+
+    /**
+     * Posts what is left in the buffer if the handler was closed while a record was being
+     * queued, as {@link #close()} may already have drained the buffer before the record landed.
+     */
+    private void drainIfClosed() {
+        if (closed) {
+            drain();
+        }
+    }
+
+    private void drain() {
+        LogRecord record;
+        while ((record = buffer.poll()) != null) {
+            post(record);
+        }
+    }
+
+    /**
+     * Waits until the record fits in the buffer. If the handler is closed, or the dispatching
+     * thread died (e.g. of an {@link Error} thrown by an appender), what is queued and the record
+     * are posted on the calling thread instead, as nothing would make room.
+     */
+    private void waitForRoom(LogRecord record) {
+        while (!buffer.offer(record)) {
+            if (closed || !dispatcher.isAlive()) {
+                drain();
+                post(record);
+                return;
+            }
+            signalDispatcher();
+            LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+        }
+    }
+
+    private void discard() {
+        discarded.incrementAndGet();
+        completed.incrementAndGet();
+    }
+
+    private void signalDispatcher() {
+        if (dispatcherParked) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    private void post(LogRecord record) {
+        try {
+            delegate.post(record);
+        } catch (RuntimeException e) {
+            reportError("Failed to post LogRecord to log4j", e, ErrorManager.WRITE_FAILURE);
+        } finally {
+            completed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Waits until all records published before this call have been posted to log4j or discarded.
+     */
+    public void flush() {
+        if (Thread.currentThread() == dispatcher) {
+            return;
+        }
+        long target = published.get();
+        while (completed.get() < target && dispatcher.isAlive()) {
+            signalDispatcher();
+            LockSupport.parkNanos(this, WAIT_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Posts all queued records and stops the dispatching thread. Records published afterwards are
+     * posted on the calling thread.
+     */
+    public void close() throws SecurityException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        LockSupport.unpark(dispatcher);
+        if (Thread.currentThread() != dispatcher) {
+            try {
+                dispatcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        drain();
+        delegate.close();
+    }
+
+    /**
+     * Sets the level below which records are discarded when the buffer is full and the policy is
+     * {@link OverflowPolicy#DROP_BELOW_LEVEL}. Defaults to WARNING.
+     *
+     * @param dropThreshold
+     */
+    public void setDropThreshold(Level dropThreshold) {
+        this.dropThreshold = dropThreshold;
+    }
+
+    public Level getDropThreshold() {
+        return dropThreshold;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    public int getBufferSize() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return number of records currently waiting to be posted
+     */
+    public int getQueueSize() {
+        return buffer.size();
+    }
+
+    /**
+     * @return the counts of the records this handler received, whose queue depth is the number
+     *         of records waiting to be posted
+     */
+    public JULBridgeMetrics getMetrics() {
+        return delegate.getMetrics();
+    }
+
+    /**
+     * @return the heavy hitters of the converter, or null
+     */
+    public JULHeavyHitters getHeavyHitters() {
+        return delegate.getHeavyHitters();
+    }
+
+    /**
+     * @return the latency histograms of the converter, or null
+     */
+    public JULBridgeLatency getLatency() {
+        return delegate.getLatency();
+    }
+
+    /**
+     * @return number of records discarded because the buffer was full
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    /**
+     * Sets the maximum number of records posted to log4j as one batch. Defaults to
+     * {@value #DEFAULT_BATCH_SIZE}.
+     *
+     * @param batchSize
+     */
+    public void setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Sets how long, in microseconds, a batch that is not yet full waits for more records before
+     * it is posted. Defaults to 0, i.e. a batch holds whatever was queued when it was drained.
+     *
+     * @param maxBatchDelay
+     */
+    public void setMaxBatchDelay(long maxBatchDelay) {
+        this.maxBatchDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxBatchDelay);
+    }
+
+    public long getMaxBatchDelay() {
+        return TimeUnit.NANOSECONDS.toMicros(maxBatchDelayNanos);
+    }
+
+    /**
+     * @return number of batches posted to log4j
+     */
+    public long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return average number of records per batch
+     */
+    public double getAverageBatchSize() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0 : (double) batchedRecords.get() / batches;
+    }
+
+    /**
+     * @return largest number of records posted in a single batch
+     */
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * @return average time, in microseconds, from taking the first record of a batch off the
+     *         buffer until the whole batch has been appended
+     */
+    public double getAverageDrainLatency() {
+        long batches = batchCount.get();
+        return batches == 0 ? 0 : totalDrainNanos.get() / 1000.0 / batches;
+    }
+
+    private class Dispatcher implements Runnable {
+        private final EventBatch batch = new EventBatch();
+
+        public void run() {
+            for (;;) {
+                LogRecord record = buffer.poll();
+                if (record != null) {
+                    long start = System.nanoTime();
+                    int drained = drain(record, start);
+                    deliver(drained, start);
+                    continue;
+                }
+                if (closed) {
+                    return;
+                }
+                dispatcherParked = true;
+                if (buffer.size() == 0 && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                dispatcherParked = false;
+            }
+        }
+
+        /**
+         * Converts the first record and as many following ones as the batch size and delay allow.
+         *
+         * @return number of records taken off the buffer
+         */
+        private int drain(LogRecord first, long start) {
+            int limit = batchSize;
+            long deadline = start + maxBatchDelayNanos;
+            LogRecord record = first;
+            int drained = 0;
+            for (;;) {
+                append(record);
+                if (++drained >= limit) {
+                    return drained;
+                }
+                while ((record = buffer.poll()) == null) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || closed) {
+                        return drained;
+                    }
+                    LockSupport.parkNanos(this, Math.min(remaining, WAIT_PARK_NANOS));
+                }
+            }
+        }
+
+        private void append(LogRecord record) {
+            try {
+                delegate.addTo(batch, record);
+            } catch (RuntimeException e) {
+                reportError("Failed to convert LogRecord", e, ErrorManager.FORMAT_FAILURE);
+            }
+        }
+
+        private void deliver(int drained, long start) {
+            int size = batch.size();
+            try {
+                delegate.deliver(batch);
+            } catch (RuntimeException e) {
+                reportError("Failed to post LogRecords to log4j", e, ErrorManager.WRITE_FAILURE);
+            } finally {
+                completed.addAndGet(drained);
+            }
+            if (size > 0) {
+                batchCount.incrementAndGet();
+                batchedRecords.addAndGet(size);
+                totalDrainNanos.addAndGet(System.nanoTime() - start);
+                if (size > maxBatchSize) {
+                    maxBatchSize = size;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Category;
+import org.apache.log4j.spi.LoggerRepository;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * <p>
+ * A batch of {@link LoggingEvent}s, grouped into runs of consecutive events posted to the same
+ * {@link Category}.
+ * </p>
+ * <p>
+ * {@link #deliver(LoggerRepository, JULBridgeMetrics)} does what
+ * {@link Category#callAppenders(LoggingEvent)} does, but once per run rather than once per event:
+ * each category in the hierarchy is locked and its appenders looked up a single time, and every
+ * event of the run is then appended in order. Runs are delivered in the order they were added, so
+ * an appender shared by several categories, such as one of the root logger, still sees all events
+ * in the order they were added. The records of a run are counted as delivered once all its events
+ * have been appended.
+ * </p>
+ * <p>
+ * Only used by the thread that dispatches an {@link AsyncJULBridgeHandler}, so not thread safe.
+ * </p>
+ */
+final class EventBatch {
+
+    private final List<Run> runs = new ArrayList<Run>();
+    private int size;
+
+    /**
+     * @param category
+     * @param event
+     * @param record
+     *            the record the event was converted from
+     */
+    void add(Category category, LoggingEvent event, LogRecord record) {
+        Run run = runs.isEmpty() ? null : runs.get(runs.size() - 1);
+        if (run == null || run.category != category) {
+            run = new Run(category);
+            runs.add(run);
+        }
+        run.events.add(event);
+        run.records.add(record);
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Appends every event of the batch and empties it.
+     *
+     * @param repository
+     *            warned when a category has no appenders at all
+     * @param metrics
+     *            counts the delivered records
+     * @throws RuntimeException
+     *             the first exception thrown by an appender, after all runs have been delivered
+     */
+    void deliver(LoggerRepository repository, JULBridgeMetrics metrics) {
+        RuntimeException failure = null;
+        try {
+            for (int r = 0; r < runs.size(); r++) {
+                Run run = runs.get(r);
+                try {
+                    deliver(repository, run.category, run.events);
+                    List<LogRecord> records = run.records;
+                    for (int i = 0; i < records.size(); i++) {
+                        LogRecord record = records.get(i);
+                        metrics.delivered(record.getLevel(), record.getLoggerName());
+                    }
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    }
+                }
+            }
+        } finally {
+            runs.clear();
+            size = 0;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static void deliver(LoggerRepository repository, Category category,
+            List<LoggingEvent> events) {
+        int writes = 0;
+        for (Category c = category; c != null; c = c.getParent()) {
+            synchronized (c) {
+                Enumeration<?> appenders = c.getAllAppenders();
+                while (appenders.hasMoreElements()) {
+                    Appender appender = (Appender) appenders.nextElement();
+                    for (int i = 0; i < events.size(); i++) {
+                        appender.doAppend(events.get(i));
+                    }
+                    writes++;
+                }
+                if (!c.getAdditivity()) {
+                    break;
+                }
+            }
+        }
+        if (writes == 0) {
+            repository.emitNoAppenderWarning(category);
+        }
+    }
+
+    private static final class Run {
+        final Category category;
+        final List<LoggingEvent> events = new ArrayList<LoggingEvent>();
+        final List<LogRecord> records = new ArrayList<LogRecord>();
+
+        Run(Category category) {
+            this.category = category;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <p>
+ * Finds the most frequent keys of a stream in bounded memory. A fixed table of slots holds the
+ * keys counted exactly, each key having two candidate slots picked by its hash. A key that has no
+ * slot is counted in a count-min sketch instead, and takes over the candidate slot with the lower
+ * count once its estimate is higher, keeping the estimate as its count, as in the Space-Saving
+ * algorithm. Counts may therefore be overestimated by the sketch, never underestimated.
+ * </p>
+ * <p>
+ * A key holding a slot is counted with a {@link LongAdder}, so the frequent keys, which are the
+ * ones added most often, cost one hash lookup and one uncontended increment and allocate nothing.
+ * Two threads taking over slots at the same time may leave a key in both its slots; the reports
+ * add them up.
+ * </p>
+ * <p>
+ * Counts are kept per window: {@link #rollOver()} moves the count of every slot to its previous
+ * window, frees the slots that were not used during the window, and clears the sketch.
+ * </p>
+ */
+final class HeavyHitterSketch {
+
+    private static final int DEPTH = 4;
+
+    private final AtomicReferenceArray<Counter> slots;
+    private final int slotMask;
+    private final AtomicLongArray sketch;
+    private final int widthMask;
+
+    /**
+     * @param slots
+     *            number of keys counted exactly, rounded up to a power of two
+     * @param width
+     *            number of counters of each row of the sketch, rounded up to a power of two
+     */
+    HeavyHitterSketch(int slots, int width) {
+        int slotCount = powerOfTwo(slots);
+        int sketchWidth = powerOfTwo(width);
+        this.slots = new AtomicReferenceArray<Counter>(slotCount);
+        this.slotMask = slotCount - 1;
+        this.sketch = new AtomicLongArray(DEPTH * sketchWidth);
+        this.widthMask = sketchWidth - 1;
+    }
+
+    private static int powerOfTwo(int size) {
+        return Integer.highestOneBit(Math.max(2, size) * 2 - 1);
+    }
+
+    void add(String key) {
+        int hash = spread(key.hashCode());
+        int first = hash & slotMask;
+        Counter firstCounter = slots.get(first);
+        if (firstCounter != null && firstCounter.holds(key)) {
+            firstCounter.count.increment();
+            return;
+        }
+        int secondHash = spread(hash ^ 0x5bd1e995);
+        int second = (secondHash | 1) + first & slotMask;
+        Counter secondCounter = slots.get(second);
+        if (secondCounter != null && secondCounter.holds(key)) {
+            secondCounter.count.increment();
+            return;
+        }
+
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < DEPTH; i++) {
+            int cell = i * (widthMask + 1) + (hash + i * (secondHash | 1) & widthMask);
+            estimate = Math.min(estimate, sketch.incrementAndGet(cell));
+        }
+        if (firstCounter == null || secondCounter == null) {
+            int free = firstCounter == null ? first : second;
+            slots.compareAndSet(free, null, new Counter(key, estimate));
+            return;
+        }
+        long firstCount = firstCounter.count.sum();
+        long secondCount = secondCounter.count.sum();
+        if (firstCount <= secondCount) {
+            if (estimate > firstCount) {
+                slots.compareAndSet(first, firstCounter, new Counter(key, estimate));
+            }
+        } else if (estimate > secondCount) {
+            slots.compareAndSet(second, secondCounter, new Counter(key, estimate));
+        }
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Starts a new window.
+     */
+    void rollOver() {
+        for (int i = 0; i < slots.length(); i++) {
+            Counter counter = slots.get(i);
+            if (counter != null) {
+                long count = counter.count.sumThenReset();
+                if (count == 0) {
+                    slots.compareAndSet(i, counter, null);
+                } else {
+                    counter.previous = count;
+                }
+            }
+        }
+        for (int i = 0; i < sketch.length(); i++) {
+            sketch.lazySet(i, 0);
+        }
+    }
+
+    /**
+     * @param n
+     * @return up to n keys with their counts during the previous window and the current one,
+     *         most frequent first
+     */
+    List<Count> top(int n) {
+        Map<String, Count> counts = new HashMap<String, Count>();
+        for (int i = 0; i < slots.length(); i++) {
+            Counter counter = slots.get(i);
+            if (counter != null) {
+                Count count = counts.get(counter.key);
+                long previous = counter.previous;
+                long current = counter.count.sum();
+                if (count != null) {
+                    previous += count.previous;
+                    current += count.current;
+                }
+                counts.put(counter.key, new Count(counter.key, previous, current));
+            }
+        }
+        List<Count> top = new ArrayList<Count>(counts.values());
+        Collections.sort(top);
+        return top.size() > n ? new ArrayList<Count>(top.subList(0, n)) : top;
+    }
+
+    /**
+     * A key and its counts.
+     */
+    static final class Count implements Comparable<Count> {
+        final String key;
+        final long previous;
+        final long current;
+
+        Count(String key, long previous, long current) {
+            this.key = key;
+            this.previous = previous;
+            this.current = current;
+        }
+
+        public int compareTo(Count other) {
+            long total = previous + current;
+            long otherTotal = other.previous + other.current;
+            return total > otherTotal ? -1 : total < otherTotal ? 1 : key.compareTo(other.key);
+        }
+    }
+
+    private static final class Counter {
+        final String key;
+        final LongAdder count = new LongAdder();
+        volatile long previous;
+
+        Counter(String key, long initialCount) {
+            this.key = key;
+            count.add(initialCount);
+        }
+
+        boolean holds(String candidate) {
+            return key == candidate || key.equals(candidate);
+        }
+    }
+}
@@ -23,13 +23,15 @@ import org.apache.log4j.spi.LoggingEvent;
  * {@link Logger}, using the {@link JuliLevelConverter} class to map to a {@link Level}.
  * </p>
  * <p>
- * Once a {@link LogRecord} is received, it is 'appended' to all Appenders.
+ * Once a {@link LogRecord} is received, it is 'appended' to all Appenders, provided the
+ * {@link Logger} is enabled for its level. Records below the effective level of the Logger are
+ * rejected before any {@link LoggingEvent} is built.
  * </p>
  * <p>
- * If a non-null existing Filter is provided to this class, then this instance is used to return the
- * true/false value the {@link Filter#isLoggable(LogRecord)} interface requires. If a null
- * value is provided, <code>true</code> is returned to mimic the default
- * behaviour of a Logger not having Filter configured.
+ * If a non-null existing Filter is provided to this class, it is asked first, and records it
+ * rejects are neither posted to log4j nor passed on in JUL. Otherwise the record is passed on to
+ * the JUL Handlers as well (tee), unless the filter is exclusive, in which case it returns
+ * <code>false</code> so that only log4j receives the record.
  * </p>
  * 
  * @author psmith
@@ -39,18 +41,54 @@ class JULBridgeFilter implements Filter {
     private final Logger loggerToPostTo;
     private final JULLog4jEventConverter converter;
     private final Filter existingJuliFilter;
+    private final boolean exclusive;
 
     public JULBridgeFilter(final Filter existingJuliFilter, Logger loggerToPostTo,
             JULLog4jEventConverter converter) {
+        this(existingJuliFilter, loggerToPostTo, converter, false);
+    }
+
+    /**
+     * @param existingJuliFilter
+     *            Filter of the JUL Logger, asked first, or null
+     * @param loggerToPostTo
+     * @param converter
+     * @param exclusive
+     *            true if records posted to log4j should not reach the JUL Handlers
+     */
+    public JULBridgeFilter(final Filter existingJuliFilter, Logger loggerToPostTo,
+            JULLog4jEventConverter converter, boolean exclusive) {
         this.existingJuliFilter = existingJuliFilter;
         this.loggerToPostTo = loggerToPostTo;
         this.converter = converter;
+        this.exclusive = exclusive;
     }
 
     public boolean isLoggable(LogRecord record) {
-        LoggingEvent event = converter.convert(record);
-        loggerToPostTo.callAppenders(event);
-        return (existingJuliFilter != null ? existingJuliFilter.isLoggable(record) : true);
+        if (existingJuliFilter != null && !existingJuliFilter.isLoggable(record)) {
+            return false;
+        }
+        post(record);
+        return !exclusive;
     }
 
+    /**
+     * Posts the record to log4j if the Logger is enabled for its level, without asking the existing
+     * Filter.
+     * 
+     * @param record
+     */
+    void post(LogRecord record) {
+        if (loggerToPostTo.isEnabledFor(converter.convertLevel(record.getLevel()))) {
+            LoggingEvent event = converter.convert(record, loggerToPostTo);
+            loggerToPostTo.callAppenders(event);
+        }
+    }
+
+    /**
+     * @return true if records are not passed on to the JUL Handlers
+     */
+    boolean isExclusive() {
+        return exclusive;
+    }
 }
@@ -10,6 +10,8 @@
  */
 package org.apache.logging.julbridge;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
 
@@ -31,33 +33,291 @@ class JULBridgeHandler extends Handler {
 
     private final LoggerRepository repository;
     private final JULLog4jEventConverter converter;
+    private final LoggerCache loggers;
+    private final AppenderChains appenderChains;
+    private final JULBridgeMetrics metrics;
 
     public JULBridgeHandler(LoggerRepository repository,
             JULLog4jEventConverter converter) {
+        this(repository, converter, new JULBridgeMetrics());
+    }
+
+    /**
+     * @param repository
+     * @param converter
+     * @param metrics
+     *            counts the records at each stage
+     */
+    JULBridgeHandler(LoggerRepository repository,
+            JULLog4jEventConverter converter, JULBridgeMetrics metrics) {
         this.repository = repository;
         this.converter = converter;
+        this.metrics = metrics;
+        this.loggers = new LoggerCache(repository);
+        this.loggers.start();
+        this.appenderChains = new AppenderChains(repository);
+        this.appenderChains.start();
     }
 
+    /**
+     * Reports what the throttle of the converter suppressed so far, and stops caching the log4j
+     * loggers records are posted to.
+     */
     public void close() throws SecurityException {
-
+        JULRecordThrottle throttle = converter.getThrottle();
+        if (throttle != null) {
+            publishSummaries(throttle.takeSummaries(true));
+        }
+        loggers.stop();
+        appenderChains.stop();
     }
 
     public void flush() {
 
     }
 
+    /**
+     * Posts the record to the matching log4j {@link Category}. The level is checked against the
+     * category (and the repository threshold) before the record is converted, so records that
+     * log4j would discard never pay for building a {@link LoggingEvent}. Enabled records then
+     * go through the throttle of the converter, if it has one. If the converter has
+     * {@link JULBridgeLatency} histograms, the duration of each stage is recorded into them.
+     */
     public void publish(LogRecord record) {
-        LoggingEvent event = converter.convert(record);
+        JULBridgeLatency latency = converter.getLatency();
+        long start = latency == null ? 0 : System.nanoTime();
+        dispatch(record, receive(record), latency, start);
+    }
+
+    /**
+     * Same as {@link #publish(LogRecord)}, posting to a log4j {@link Category} the caller has
+     * already resolved.
+     * 
+     * @param record
+     * @param category
+     */
+    void publish(LogRecord record, Category category) {
+        JULBridgeLatency latency = converter.getLatency();
+        long start = latency == null ? 0 : System.nanoTime();
+        Category localLogger = category;
+        if (category.isEnabledFor(converter.convertLevel(record.getLevel()))) {
+            metrics.received(record.getLevel(), record.getLoggerName());
+        } else {
+            metrics.rejectedByLevel(record.getLevel());
+            localLogger = null;
+        }
+        dispatch(record, localLogger, latency, start);
+    }
+
+    /**
+     * @param record
+     * @param localLogger
+     *            category enabled for the record, or null
+     * @param latency
+     *            histograms to record into, or null
+     * @param start
+     *            when the record was received, if there are histograms
+     */
+    private void dispatch(LogRecord record, Category localLogger, JULBridgeLatency latency,
+            long start) {
+        if (latency == null) {
+            if (localLogger != null && admit(record)) {
+                deliver(record, localLogger);
+            }
+        } else {
+            latency.record(JULBridgeLatency.LOOKUP, System.nanoTime() - start);
+            if (localLogger != null && admit(record)) {
+                deliver(record, localLogger, latency);
+            }
+            latency.summarizeIfDue(System.nanoTime());
+        }
+        publishSummaries(takeSummaries());
+    }
+
+    /**
+     * Posts a record that was already received and admitted, e.g. one taken off the queue of
+     * an {@link AsyncJULBridgeHandler}, unless its category is no longer enabled for its level.
+     * 
+     * @param record
+     */
+    void post(LogRecord record) {
+        Category localLogger = getEnabledCategory(record);
+        if (localLogger != null) {
+            deliver(record, localLogger);
+        }
+    }
+
+    private void deliver(LogRecord record, Category localLogger) {
+        localLogger.callAppenders(convert(record, localLogger));
+        metrics.delivered(record.getLevel(), record.getLoggerName());
+    }
+
+    /**
+     * Same as {@link #deliver(LogRecord, Category)}, timing each stage. The caller is inferred
+     * before the conversion, if an appender needs it, so it is timed on its own.
+     */
+    private void deliver(LogRecord record, Category localLogger, JULBridgeLatency latency) {
+        long start = System.nanoTime();
+        if (appenderChains.needsLocation(localLogger)) {
+            record.getSourceClassName();
+            long inferred = System.nanoTime();
+            latency.record(JULBridgeLatency.INFERENCE, inferred - start);
+            start = inferred;
+        }
+        LoggingEvent event = convert(record, localLogger);
+        long converted = System.nanoTime();
+        latency.record(JULBridgeLatency.CONVERSION, converted - start);
+        localLogger.callAppenders(event);
+        metrics.delivered(record.getLevel(), record.getLoggerName());
+        latency.record(JULBridgeLatency.APPEND, System.nanoTime() - converted);
+    }
+
+    private void publishSummaries(List<LogRecord> summaries) {
+        for (int i = 0; i < summaries.size(); i++) {
+            LogRecord summary = summaries.get(i);
+            Category localLogger = receive(summary);
+            if (localLogger != null) {
+                deliver(summary, localLogger);
+            }
+        }
+    }
 
+    /**
+     * Counts the record as received and resolves the log4j {@link Category} it would be posted
+     * to, as {@link #getEnabledCategory(LogRecord)} does. A rejected record is counted under its
+     * level only, so its namespace is never looked up.
+     * 
+     * @param record
+     * @return the category, or null if it is not enabled for the level of the record
+     */
+    Category receive(LogRecord record) {
+        Category localLogger = getEnabledCategory(record);
+        if (localLogger == null) {
+            metrics.rejectedByLevel(record.getLevel());
+        } else {
+            metrics.received(record.getLevel(), record.getLoggerName());
+        }
+        return localLogger;
+    }
+
+    /**
+     * @return the counts of the records this handler received
+     */
+    JULBridgeMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return the heavy hitters of the converter, or null
+     */
+    JULHeavyHitters getHeavyHitters() {
+        return converter.getHeavyHitters();
+    }
+
+    /**
+     * @return the histograms of the converter, or null
+     */
+    JULBridgeLatency getLatency() {
+        return converter.getLatency();
+    }
+
+    /**
+     * @param record
+     *            record whose category is enabled
+     * @return false if the record is suppressed by the throttle of the converter
+     */
+    boolean admit(LogRecord record) {
+        JULRecordThrottle throttle = converter.getThrottle();
+        return throttle == null || throttle.tryAcquire(record);
+    }
+
+    /**
+     * @return the records reporting what the throttle of the converter suppressed, when they are
+     *         due
+     */
+    List<LogRecord> takeSummaries() {
+        JULRecordThrottle throttle = converter.getThrottle();
+        return throttle == null ? Collections.<LogRecord> emptyList() : throttle
+                .takeSummaries(false);
+    }
+
+    /**
+     * Resolves the log4j {@link Category} the record would be posted to. The
+     * category is looked up once per record and handed to the converter.
+     * 
+     * @param record
+     * @return the category, or null if it is not enabled for the level of the
+     *         record
+     */
+    Category getEnabledCategory(LogRecord record) {
         String loggerName = record.getLoggerName();
         if (loggerName == null) {
     	    loggerName = UNKNOWN_LOGGER_NAME;
         }
 
-        Category localLogger = repository.getLogger(loggerName);
-        if (event.getLevel().isGreaterOrEqual(localLogger.getEffectiveLevel())) {
-            localLogger.callAppenders(event);
+        Category localLogger = getCategory(loggerName);
+        if (!localLogger.isEnabledFor(converter.convertLevel(record.getLevel()))) {
+            return null;
         }
+        return localLogger;
+    }
+
+    private LoggingEvent convert(LogRecord record, Category localLogger) {
+        boolean transientEvent = converter.isReuseLocationInfo()
+                && !appenderChains.retainsEvents(localLogger);
+        LoggingEvent event = converter.convert(record, localLogger, transientEvent,
+                appenderChains.needsLocation(localLogger));
+        metrics.converted(record.getLevel(), record.getLoggerName());
+        JULHeavyHitters heavyHitters = converter.getHeavyHitters();
+        if (heavyHitters != null) {
+            heavyHitters.record(record);
+        }
+        return event;
+    }
+
+    /**
+     * Tells whether JUL may need to infer the caller of a record for the category, without
+     * waiting for an appender of the category to finish. The answer is only known once a record
+     * of the category has been converted since the last configuration change; until then it is
+     * true.
+     * 
+     * @param category
+     * @return false if the appenders of the category are known never to ask for the location of
+     *         an event
+     */
+    boolean mayNeedLocation(Category category) {
+        return appenderChains.mayNeedLocation(category);
+    }
+
+    /**
+     * @param loggerName
+     * @return the log4j logger of that name
+     */
+    Category getCategory(String loggerName) {
+        return loggers.getLogger(loggerName);
+    }
+
+    /**
+     * Converts the record and adds it to the batch, unless the category it would be posted to is
+     * not enabled for its level.
+     * 
+     * @param batch
+     * @param record
+     */
+    void addTo(EventBatch batch, LogRecord record) {
+        Category localLogger = getEnabledCategory(record);
+        if (localLogger != null) {
+            batch.add(localLogger, convert(record, localLogger), record);
+        }
+    }
+
+    /**
+     * Appends every event of the batch to the appenders of its category.
+     * 
+     * @param batch
+     */
+    void deliver(EventBatch batch) {
+        batch.deliver(repository, metrics);
     }
 
 }
@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * Records how long each stage of posting a JUL record to log4j takes, to tell where the time of a
+ * slow logging call went:
+ * </p>
+ * <ul>
+ * <li><code>lookup</code>: finding the log4j logger of the record and checking its level</li>
+ * <li><code>inference</code>: JUL inferring the caller, when an appender prints it</li>
+ * <li><code>conversion</code>: building the {@link org.apache.log4j.spi.LoggingEvent}</li>
+ * <li><code>append</code>: the appenders of the logger and its ancestors</li>
+ * </ul>
+ * <p>
+ * Each stage has a {@link LatencyHistogram} that every thread records into without locking. When
+ * a summary interval is given, the percentiles of every stage are logged at INFO to the log4j
+ * logger of this class by the first record published after each interval.
+ * </p>
+ * <p>
+ * The bridge handlers only time records when their converter has an instance of this class, so
+ * there is no cost when it has none. {@link AsyncJULBridgeHandler} times the records it posts
+ * directly, not the ones its thread posts in batches.
+ * </p>
+ *
+ * @see JULLog4jEventConverter#setLatency(JULBridgeLatency)
+ */
+public final class JULBridgeLatency implements JULBridgeLatencyMXBean {
+
+    static final int LOOKUP = 0;
+    static final int INFERENCE = 1;
+    static final int CONVERSION = 2;
+    static final int APPEND = 3;
+
+    private static final String[] STAGE_NAMES = { "lookup", "inference", "conversion", "append" };
+
+    private static final Logger LOG = Logger.getLogger(JULBridgeLatency.class);
+
+    private final LatencyHistogram[] stages = new LatencyHistogram[STAGE_NAMES.length];
+    private final long summaryIntervalNanos;
+    private final AtomicLong nextSummary;
+
+    /**
+     * Records durations without ever logging them.
+     */
+    public JULBridgeLatency() {
+        this(0);
+    }
+
+    /**
+     * @param summaryInterval
+     *            minimum number of milliseconds between two summaries logged, 0 for none
+     */
+    public JULBridgeLatency(long summaryInterval) {
+        if (summaryInterval < 0) {
+            throw new IllegalArgumentException("summaryInterval cannot be negative");
+        }
+        for (int i = 0; i < stages.length; i++) {
+            stages[i] = new LatencyHistogram();
+        }
+        this.summaryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(summaryInterval);
+        this.nextSummary = new AtomicLong(System.nanoTime() + summaryIntervalNanos);
+    }
+
+    void record(int stage, long nanos) {
+        stages[stage].record(nanos);
+    }
+
+    /**
+     * Logs the summary if the interval has elapsed since the last one. Only one of the threads
+     * calling at that time logs it.
+     *
+     * @param now
+     *            result of {@link System#nanoTime()}
+     */
+    void summarizeIfDue(long now) {
+        if (summaryIntervalNanos == 0) {
+            return;
+        }
+        long due = nextSummary.get();
+        if (now - due >= 0 && nextSummary.compareAndSet(due, now + summaryIntervalNanos)) {
+            LOG.info(toString());
+        }
+    }
+
+    public Map<String, Percentiles> getStages() {
+        Map<String, Percentiles> percentiles = new LinkedHashMap<String, Percentiles>();
+        for (int i = 0; i < stages.length; i++) {
+            LatencyHistogram.Snapshot snapshot = stages[i].snapshot();
+            percentiles.put(STAGE_NAMES[i], new Percentiles(snapshot.getCount(), snapshot
+                    .getMean(), snapshot.getValueAtPercentile(50), snapshot
+                    .getValueAtPercentile(90), snapshot.getValueAtPercentile(99), snapshot
+                    .getValueAtPercentile(99.9), snapshot.getMax()));
+        }
+        return percentiles;
+    }
+
+    public void reset() {
+        for (int i = 0; i < stages.length; i++) {
+            stages[i].reset();
+        }
+    }
+
+    /**
+     * Registers the histograms with the platform MBean server, replacing whatever was registered
+     * under the same name.
+     *
+     * @param type
+     *            <code>type</code> key of the name
+     * @param name
+     *            <code>name</code> key of the name, or null
+     * @return the name they were registered with, or null if they could not be
+     * @see JULBridgeMetrics#unregister(ObjectName)
+     */
+    public ObjectName register(String type, String name) {
+        return JULBridgeMetrics.register(this, type, name);
+    }
+
+    /**
+     * @return the summary line logged every interval
+     */
+    public String toString() {
+        StringBuilder summary = new StringBuilder("JUL bridge latency (ns)");
+        String separator = " ";
+        for (Map.Entry<String, Percentiles> stage : getStages().entrySet()) {
+            summary.append(separator).append(stage.getKey()).append(": ").append(
+                    stage.getValue());
+            separator = "; ";
+        }
+        return summary.toString();
+    }
+}
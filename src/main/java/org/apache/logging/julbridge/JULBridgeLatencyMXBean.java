@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+
+/**
+ * <p>
+ * Management interface of {@link JULBridgeLatency}: how long the stages of posting JUL records
+ * to log4j took, in nanoseconds.
+ * </p>
+ */
+public interface JULBridgeLatencyMXBean {
+
+    /**
+     * @return the durations of each stage recorded since the last reset, keyed by stage name
+     */
+    Map<String, Percentiles> getStages();
+
+    /**
+     * Forgets the durations recorded so far.
+     */
+    void reset();
+
+    /**
+     * Percentiles of the durations of one stage, in nanoseconds.
+     */
+    public static final class Percentiles {
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p90;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        @ConstructorProperties( { "count", "mean", "p50", "p90", "p99", "p999", "max" })
+        public Percentiles(long count, double mean, long p50, long p90, long p99, long p999,
+                long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        public String toString() {
+            return "n=" + count + " mean=" + Math.round(mean) + " p50=" + p50 + " p90=" + p90
+                    + " p99=" + p99 + " p99.9=" + p999 + " max=" + max;
+        }
+    }
+}
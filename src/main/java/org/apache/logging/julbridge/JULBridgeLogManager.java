@@ -11,6 +11,13 @@
 package org.apache.logging.julbridge;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Handler;
 
 import org.apache.log4j.LogManager;
 
@@ -22,12 +29,122 @@ import org.apache.log4j.LogManager;
  * 
  * <pre>-Djava.util.logging.manager=org.apache.logging.julbridge.JULBridgeLogManager</pre>
  * 
+ * Every JUL Logger created through <code>Logger.getLogger</code> is then backed by the log4j
+ * Logger of the same name in the assimilated repository (see {@link JULBridgeLogger}):
+ * <code>isLoggable</code> is answered from the effective level in log4j, and records are posted
+ * straight to the log4j Logger through the Handler the bridge was assimilated with. Setting the
+ * level of the JUL Logger sets the level of the log4j Logger, so a JUL library calling
+ * <code>Logger.setLevel</code> reconfigures log4j for that Logger, as JUL's own configuration
+ * would. <code>LogManager.getLogger</code> only looks Loggers up, as usual. The Loggers are kept
+ * in a concurrent map, and like log4j's own Loggers they are never discarded. Logging
+ * configuration files of JUL are not read; log4j is configured as usual.
+ * 
+ * The root and global Loggers, and Loggers of a subclass of <code>Logger</code> added with
+ * {@link #addLogger(java.util.logging.Logger)}, remain plain JUL Loggers, whose records reach
+ * log4j through the Handler of the root Logger. Setting the
+ * <code>org.apache.logging.julbridge.directRouting</code> system property to true gives them a
+ * direct route to log4j as well (see
+ * {@link JULLog4jBridge#assimilate(JULLog4jEventConverter, boolean, boolean)}).
+ * 
  * @author Brett Randall
  *
  */
 public class JULBridgeLogManager extends java.util.logging.LogManager {
 
+    /** System property enabling direct routing of every plain JUL Logger. */
+    public static final String DIRECT_ROUTING_PROPERTY = "org.apache.logging.julbridge.directRouting";
+
+    private final ConcurrentMap<String, JULBridgeLogger> loggers = new ConcurrentHashMap<String, JULBridgeLogger>();
+
     public void readConfiguration() throws IOException, SecurityException {
-        JULLog4jBridge.assimilate(LogManager.getLoggerRepository());
+        if (Boolean.getBoolean(DIRECT_ROUTING_PROPERTY)) {
+            JULLog4jBridge.assimilate(new JULLog4jEventConverter(LogManager.getLoggerRepository()),
+                    false, true);
+        } else {
+            JULLog4jBridge.assimilate(LogManager.getLoggerRepository());
+        }
+    }
+
+    /**
+     * Returns the Logger of that name, log4j-backed or plain, or null if there is none. Lookups
+     * never create a Logger.
+     */
+    public java.util.logging.Logger getLogger(String name) {
+        JULBridgeLogger logger = loggers.get(name);
+        return logger != null ? logger : super.getLogger(name);
+    }
+
+    /**
+     * Registers a plain JUL Logger, unless a Logger of the same name exists. A
+     * <code>java.util.logging.Logger</code> itself, rather than a subclass, can only have been
+     * created by the JDK, as <code>Logger.getLogger</code> does before adding it here. A
+     * log4j-backed Logger is then registered in its place and false is returned, as for any name
+     * that is taken, so that the caller looks the name up and gets the log4j-backed one.
+     */
+    public boolean addLogger(java.util.logging.Logger logger) {
+        String name = logger.getName();
+        if (name != null && loggers.containsKey(name)) {
+            return false;
+        }
+        if (name != null && name.length() > 0
+                && logger.getClass() == java.util.logging.Logger.class
+                && !java.util.logging.Logger.GLOBAL_LOGGER_NAME.equals(name)
+                && super.getLogger(name) == null) {
+            createLogger(name);
+            return false;
+        }
+        boolean added = super.addLogger(logger);
+        if (added) {
+            JULLog4jBridge.route(logger);
+        }
+        return added;
+    }
+
+    /**
+     * Creates the log4j-backed Logger of that name, unless it exists.
+     * 
+     * @param name
+     * @return the log4j-backed Logger
+     */
+    JULBridgeLogger createLogger(String name) {
+        JULBridgeLogger logger = new JULBridgeLogger(name, JULLog4jBridge.getRepository()
+                .getLogger(name));
+        JULBridgeLogger existing = loggers.putIfAbsent(name, logger);
+        if (existing != null) {
+            return existing;
+        }
+        java.util.logging.Logger root = super.getLogger("");
+        if (root != null) {
+            logger.setParent(root);
+        }
+        return logger;
+    }
+
+    public Enumeration<String> getLoggerNames() {
+        List<String> names = new ArrayList<String>(loggers.keySet());
+        names.addAll(Collections.list(super.getLoggerNames()));
+        return Collections.enumeration(names);
+    }
+
+    /**
+     * Resets the plain JUL Loggers, and closes and removes the Handlers added to log4j-backed
+     * Loggers.
+     */
+    public void reset() throws SecurityException {
+        super.reset();
+        if (loggers == null) {
+            return;
+        }
+        for (JULBridgeLogger logger : loggers.values()) {
+            Handler[] handlers = logger.getHandlers();
+            for (int i = 0; i < handlers.length; i++) {
+                logger.removeHandler(handlers[i]);
+                try {
+                    handlers[i].close();
+                } catch (Exception e) {
+                    // ignore, as the default LogManager does
+                }
+            }
+        }
     }
-}
\ No newline at end of file
+}
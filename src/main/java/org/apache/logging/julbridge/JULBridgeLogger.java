@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.logging.Filter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.Category;
+
+/**
+ * <p>
+ * JUL Logger handed out by {@link JULBridgeLogManager}, backed by the log4j logger of the same
+ * name. {@link #isLoggable(Level)} asks log4j, so JUL callers reject disabled records at the same
+ * cost as a log4j <code>isEnabledFor</code> check, and the level of the Logger is the level of the
+ * log4j logger.
+ * </p>
+ * <p>
+ * Records are posted straight to the log4j logger through the Handler the bridge was assimilated
+ * with, after the Logger's own {@link Filter}, and are then published to any Handler added to this
+ * Logger itself. They are not passed to the Handlers of parent Loggers. Levels are converted with
+ * the level converter of the bridge. While the bridge is not assimilated, records are logged as by
+ * a plain JUL Logger.
+ * </p>
+ */
+final class JULBridgeLogger extends java.util.logging.Logger {
+
+    private final Category category;
+
+    JULBridgeLogger(String name, Category category) {
+        super(name, null);
+        this.category = category;
+    }
+
+    /**
+     * @return the log4j logger records are posted to
+     */
+    Category getCategory() {
+        return category;
+    }
+
+    public boolean isLoggable(Level level) {
+        return category.isEnabledFor(JULLog4jBridge.getLevelConverter().convertJuliLevel(level));
+    }
+
+    public void log(LogRecord record) {
+        Handler bridge = JULLog4jBridge.getBridgeHandler();
+        if (bridge == null) {
+            super.log(record);
+            return;
+        }
+        if (!isLoggable(record.getLevel())) {
+            return;
+        }
+        Filter filter = getFilter();
+        if (filter != null && !filter.isLoggable(record)) {
+            return;
+        }
+        if (bridge instanceof JULBridgeHandler) {
+            ((JULBridgeHandler) bridge).publish(record, category);
+        } else {
+            bridge.publish(record);
+        }
+        Handler[] handlers = getHandlers();
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i].publish(record);
+        }
+    }
+
+    /**
+     * Sets the level of the log4j logger, unless it already maps to the given level. This is a
+     * change of the log4j configuration, seen by log4j callers of that logger as well.
+     */
+    public void setLevel(Level newLevel) {
+        if (newLevel == null) {
+            category.setLevel(null);
+        } else if (!newLevel.equals(getLevel())) {
+            category.setLevel(JULLog4jBridge.getLevelConverter().convertJuliLevel(newLevel));
+        }
+    }
+
+    /**
+     * @return the level of the log4j logger, or null if it inherits its level
+     */
+    public Level getLevel() {
+        org.apache.log4j.Level level = category.getLevel();
+        return level == null ? null : JULLog4jBridge.getLevelConverter().convertLog4jLevel(level);
+    }
+}
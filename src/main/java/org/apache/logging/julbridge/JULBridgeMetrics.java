@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.helpers.LogLog;
+
+/**
+ * <p>
+ * Counts the records crossing a bridge at each stage, per JUL level and per top-level Logger
+ * namespace. Every count is a {@link LongAdder}, so threads logging at the same time update
+ * separate cells instead of contending on one counter, and recording a record costs a few
+ * uncontended increments and one lookup of its Logger name.
+ * </p>
+ * <p>
+ * Records a bridge handler drops because their level is disabled are counted with
+ * {@link #rejectedByLevel(Level)}, under their level only: the reject path stays two increments,
+ * without the lookup, and the counts per namespace cover the records that passed the level check.
+ * </p>
+ * <p>
+ * Subclasses owning a queue override {@link #getQueueDepth()}.
+ * </p>
+ *
+ * @see JULLog4jBridge#assimilate(org.apache.log4j.spi.LoggerRepository, JULLevelConverter,
+ *      boolean, java.util.logging.Handler)
+ */
+public class JULBridgeMetrics implements JULBridgeMetricsMXBean {
+
+    /** Domain of the names the metrics are registered with. */
+    public static final String DOMAIN = "org.apache.logging.julbridge";
+
+    static final String OTHER = "OTHER";
+
+    private static final Level[] LEVELS = { Level.SEVERE, Level.WARNING, Level.INFO,
+            Level.CONFIG, Level.FINE, Level.FINER, Level.FINEST };
+
+    private static final int RECEIVED = 0;
+    private static final int REJECTED_BY_LEVEL = 1;
+    private static final int CONVERTED = 2;
+    private static final int DELIVERED = 3;
+
+    /** Logger names remembered with their namespace, so most lookups allocate nothing. */
+    private static final int MAX_LOGGER_NAMES = 4096;
+    /** Namespaces counted separately, further ones are counted as {@link #OTHER}. */
+    private static final int MAX_NAMESPACES = 256;
+
+    private final Counters[] levels = new Counters[LEVELS.length + 1];
+    private final ConcurrentMap<String, Counters> namespaces = new ConcurrentHashMap<String, Counters>();
+    private final ConcurrentMap<String, Counters> loggerNames = new ConcurrentHashMap<String, Counters>();
+
+    public JULBridgeMetrics() {
+        for (int i = 0; i < levels.length; i++) {
+            levels[i] = new Counters();
+        }
+    }
+
+    public void received(Level level, String loggerName) {
+        count(RECEIVED, level, loggerName);
+    }
+
+    public void rejectedByLevel(Level level, String loggerName) {
+        count(REJECTED_BY_LEVEL, level, loggerName);
+    }
+
+    /**
+     * Counts a record as received and rejected by level under its level only, for a record that
+     * was not counted with {@link #received(Level, String)}.
+     * 
+     * @param level
+     */
+    public void rejectedByLevel(Level level) {
+        Counters counters = levels[indexOf(level)];
+        counters.stages[RECEIVED].increment();
+        counters.stages[REJECTED_BY_LEVEL].increment();
+    }
+
+    public void converted(Level level, String loggerName) {
+        count(CONVERTED, level, loggerName);
+    }
+
+    public void delivered(Level level, String loggerName) {
+        count(DELIVERED, level, loggerName);
+    }
+
+    private void count(int stage, Level level, String loggerName) {
+        levels[indexOf(level)].stages[stage].increment();
+        namespaceOf(loggerName).stages[stage].increment();
+    }
+
+    private static int indexOf(Level level) {
+        switch (level == null ? 0 : level.intValue()) {
+        case 1000:
+            return 0;
+        case 900:
+            return 1;
+        case 800:
+            return 2;
+        case 700:
+            return 3;
+        case 500:
+            return 4;
+        case 400:
+            return 5;
+        case 300:
+            return 6;
+        default:
+            return LEVELS.length;
+        }
+    }
+
+    private Counters namespaceOf(String loggerName) {
+        String name = loggerName == null ? "" : loggerName;
+        Counters counters = loggerNames.get(name);
+        if (counters == null) {
+            int dot = name.indexOf('.');
+            String namespace = dot < 0 ? name : name.substring(0, dot);
+            counters = namespaces.get(namespace);
+            if (counters == null) {
+                if (namespaces.size() >= MAX_NAMESPACES) {
+                    namespace = OTHER;
+                }
+                counters = new Counters();
+                Counters existing = namespaces.putIfAbsent(namespace, counters);
+                if (existing != null) {
+                    counters = existing;
+                }
+            }
+            if (loggerNames.size() < MAX_LOGGER_NAMES) {
+                loggerNames.put(name, counters);
+            }
+        }
+        return counters;
+    }
+
+    public long getReceivedCount() {
+        return total(RECEIVED);
+    }
+
+    public long getRejectedByLevelCount() {
+        return total(REJECTED_BY_LEVEL);
+    }
+
+    public long getConvertedCount() {
+        return total(CONVERTED);
+    }
+
+    public long getDeliveredCount() {
+        return total(DELIVERED);
+    }
+
+    private long total(int stage) {
+        long total = 0;
+        for (int i = 0; i < levels.length; i++) {
+            total += levels[i].stages[stage].sum();
+        }
+        return total;
+    }
+
+    /**
+     * @return -1, as there is no queue
+     */
+    public int getQueueDepth() {
+        return -1;
+    }
+
+    public Map<String, Counts> getCountsByLevel() {
+        Map<String, Counts> counts = new LinkedHashMap<String, Counts>();
+        for (int i = 0; i < levels.length; i++) {
+            counts.put(i < LEVELS.length ? LEVELS[i].getName() : OTHER, levels[i].snapshot());
+        }
+        return counts;
+    }
+
+    public Map<String, Counts> getCountsByNamespace() {
+        Map<String, Counts> counts = new TreeMap<String, Counts>();
+        for (Map.Entry<String, Counters> namespace : namespaces.entrySet()) {
+            counts.put(namespace.getKey(), namespace.getValue().snapshot());
+        }
+        return counts;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing whatever was registered
+     * under the same name.
+     *
+     * @param type
+     *            <code>type</code> key of the name
+     * @param name
+     *            <code>name</code> key of the name, or null
+     * @return the name the metrics were registered with, or null if they could not be
+     */
+    public ObjectName register(String type, String name) {
+        return register(this, type, name);
+    }
+
+    static ObjectName register(Object mbean, String type, String name) {
+        try {
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type
+                    + (name == null ? "" : ",name=" + ObjectName.quote(name)));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+            return objectName;
+        } catch (JMException e) {
+            LogLog.warn("Could not register the bridge metrics", e);
+            return null;
+        }
+    }
+
+    /**
+     * @param objectName
+     *            name returned by {@link #register(String, String)}, or null
+     */
+    public static void unregister(ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            LogLog.warn("Could not unregister the bridge metrics " + objectName, e);
+        }
+    }
+
+    private static final class Counters {
+        final LongAdder[] stages = { new LongAdder(), new LongAdder(), new LongAdder(),
+                new LongAdder() };
+
+        Counts snapshot() {
+            return new Counts(stages[RECEIVED].sum(), stages[REJECTED_BY_LEVEL].sum(),
+                    stages[CONVERTED].sum(), stages[DELIVERED].sum());
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.beans.ConstructorProperties;
+import java.util.Map;
+
+/**
+ * <p>
+ * Management interface of {@link JULBridgeMetrics}: how many records a bridge received, rejected
+ * because their level was disabled, converted, and delivered, in total, per JUL level and per
+ * top-level Logger namespace (the part of the Logger name before the first dot).
+ * </p>
+ */
+public interface JULBridgeMetricsMXBean {
+
+    long getReceivedCount();
+
+    long getRejectedByLevelCount();
+
+    long getConvertedCount();
+
+    long getDeliveredCount();
+
+    /**
+     * @return number of records or events waiting in the queue of the bridge, or -1 if it has
+     *         none
+     */
+    int getQueueDepth();
+
+    /**
+     * @return counts keyed by JUL level name, levels that are not one of the standard JUL levels
+     *         being counted as <code>OTHER</code>
+     */
+    Map<String, Counts> getCountsByLevel();
+
+    /**
+     * @return counts keyed by top-level Logger namespace. The records a bridge handler rejects by
+     *         level are counted per level only, and are left out of these.
+     */
+    Map<String, Counts> getCountsByNamespace();
+
+    /**
+     * Snapshot of the counts of one level or namespace.
+     */
+    public static final class Counts {
+        private final long received;
+        private final long rejectedByLevel;
+        private final long converted;
+        private final long delivered;
+
+        @ConstructorProperties( { "received", "rejectedByLevel", "converted", "delivered" })
+        public Counts(long received, long rejectedByLevel, long converted, long delivered) {
+            this.received = received;
+            this.rejectedByLevel = rejectedByLevel;
+            this.converted = converted;
+            this.delivered = delivered;
+        }
+
+        public long getReceived() {
+            return received;
+        }
+
+        public long getRejectedByLevel() {
+            return rejectedByLevel;
+        }
+
+        public long getConverted() {
+            return converted;
+        }
+
+        public long getDelivered() {
+            return delivered;
+        }
+    }
+}
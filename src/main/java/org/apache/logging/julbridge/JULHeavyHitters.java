@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.LogRecord;
+
+import javax.management.ObjectName;
+
+/**
+ * <p>
+ * Tracks which JUL Loggers and which messages post the most records to log4j, so a chatty library
+ * can be found before it fills the disk. The bridge handlers count every record they convert once
+ * it is set on their converter with {@link JULLog4jEventConverter#setHeavyHitters(JULHeavyHitters)}.
+ * </p>
+ * <p>
+ * Logger names and messages (the pattern of the record, before its parameters are applied) are
+ * each counted in a {@link HeavyHitterSketch} of bounded size, so memory stays fixed however many
+ * distinct Loggers and messages there are, and counting a frequent one allocates nothing. Counts
+ * are kept over windows of fixed length, timed by the records themselves; rates are computed over
+ * the last complete window and the current one, so a Logger that went quiet drops out of the
+ * report after two windows.
+ * </p>
+ *
+ * @see JULLog4jBridge#assimilate(org.apache.log4j.spi.LoggerRepository, JULLevelConverter,
+ *      boolean, java.util.logging.Handler)
+ */
+public final class JULHeavyHitters implements JULHeavyHittersMXBean {
+
+    /** Number of Logger names and messages counted exactly unless another is given. */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** Window length, in milliseconds, used unless another is given. */
+    public static final long DEFAULT_WINDOW = 60000;
+
+    private static final int DEFAULT_TOP_N = 10;
+    private static final int SKETCH_WIDTH_FACTOR = 8;
+
+    private final HeavyHitterSketch loggers;
+    private final HeavyHitterSketch messages;
+    private final int capacity;
+    private final long windowMillis;
+    private final AtomicLong windowStart;
+    private volatile boolean previousWindow;
+    private volatile int topN = DEFAULT_TOP_N;
+
+    public JULHeavyHitters() {
+        this(DEFAULT_CAPACITY, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @param capacity
+     *            number of Logger names, and of messages, counted exactly
+     * @param window
+     *            length of a window, in milliseconds
+     */
+    public JULHeavyHitters(int capacity, long window) {
+        if (capacity < 1 || window < 1) {
+            throw new IllegalArgumentException("capacity and window must be positive");
+        }
+        this.capacity = capacity;
+        this.loggers = new HeavyHitterSketch(capacity, capacity * SKETCH_WIDTH_FACTOR);
+        this.messages = new HeavyHitterSketch(capacity, capacity * SKETCH_WIDTH_FACTOR);
+        this.windowMillis = window;
+        this.windowStart = new AtomicLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Counts the record for its Logger and its message.
+     *
+     * @param record
+     */
+    void record(LogRecord record) {
+        long start = windowStart.get();
+        if (record.getMillis() - start >= windowMillis
+                && windowStart.compareAndSet(start, record.getMillis())) {
+            loggers.rollOver();
+            messages.rollOver();
+            previousWindow = true;
+        }
+        String loggerName = record.getLoggerName();
+        loggers.add(loggerName == null ? "" : loggerName);
+        String message = record.getMessage();
+        if (message != null) {
+            messages.add(message);
+        }
+    }
+
+    public List<HeavyHitter> getTopLoggers() {
+        return top(loggers);
+    }
+
+    public List<HeavyHitter> getTopMessages() {
+        return top(messages);
+    }
+
+    private List<HeavyHitter> top(HeavyHitterSketch sketch) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - windowStart.get());
+        double seconds = (elapsed + (previousWindow ? windowMillis : 0)) / 1000.0;
+        List<HeavyHitterSketch.Count> counts = sketch.top(topN);
+        List<HeavyHitter> top = new ArrayList<HeavyHitter>(counts.size());
+        for (int i = 0; i < counts.size(); i++) {
+            HeavyHitterSketch.Count count = counts.get(i);
+            long total = count.previous + count.current;
+            top.add(new HeavyHitter(count.key, total, total / seconds));
+        }
+        return top;
+    }
+
+    public int getTopN() {
+        return topN;
+    }
+
+    public void setTopN(int topN) {
+        if (topN < 1 || topN > capacity) {
+            throw new IllegalArgumentException("topN must be between 1 and " + capacity);
+        }
+        this.topN = topN;
+    }
+
+    public String dump() {
+        StringBuilder report = new StringBuilder();
+        dump(report, "Loggers", getTopLoggers());
+        dump(report, "messages", getTopMessages());
+        return report.toString();
+    }
+
+    private static void dump(StringBuilder report, String what, List<HeavyHitter> top) {
+        report.append("Top JUL ").append(what).append(" by records per second:").append(
+                System.getProperty("line.separator"));
+        for (int i = 0; i < top.size(); i++) {
+            HeavyHitter hitter = top.get(i);
+            report.append(String.format(Locale.ENGLISH, "%12.1f/s %12d  %s", hitter
+                    .getRecordsPerSecond(), hitter.getCount(), hitter.getKey()));
+            report.append(System.getProperty("line.separator"));
+        }
+    }
+
+    /**
+     * Registers the report with the platform MBean server, replacing whatever was registered
+     * under the same name.
+     *
+     * @param type
+     *            <code>type</code> key of the name
+     * @param name
+     *            <code>name</code> key of the name, or null
+     * @return the name it was registered with, or null if it could not be
+     * @see JULBridgeMetrics#unregister(ObjectName)
+     */
+    public ObjectName register(String type, String name) {
+        return JULBridgeMetrics.register(this, type, name);
+    }
+
+    public String toString() {
+        return dump();
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.beans.ConstructorProperties;
+import java.util.List;
+
+/**
+ * <p>
+ * Management interface of {@link JULHeavyHitters}: the JUL Loggers and messages posting the most
+ * records to log4j.
+ * </p>
+ */
+public interface JULHeavyHittersMXBean {
+
+    /**
+     * @return the Logger names posting the most records, most frequent first
+     */
+    List<HeavyHitter> getTopLoggers();
+
+    /**
+     * @return the messages, before their parameters are applied, posted most often, most frequent
+     *         first
+     */
+    List<HeavyHitter> getTopMessages();
+
+    int getTopN();
+
+    /**
+     * @param topN
+     *            number of Loggers and messages reported, at most the number of keys tracked
+     */
+    void setTopN(int topN);
+
+    /**
+     * @return a readable report of the top Loggers and messages
+     */
+    String dump();
+
+    /**
+     * A Logger name or message with the number of records counted for it over the last complete
+     * window and the current one, and the rate this makes.
+     */
+    public static final class HeavyHitter {
+        private final String key;
+        private final long count;
+        private final double recordsPerSecond;
+
+        @ConstructorProperties( { "key", "count", "recordsPerSecond" })
+        public HeavyHitter(String key, long count, double recordsPerSecond) {
+            this.key = key;
+            this.count = count;
+            this.recordsPerSecond = recordsPerSecond;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getRecordsPerSecond() {
+            return recordsPerSecond;
+        }
+    }
+}
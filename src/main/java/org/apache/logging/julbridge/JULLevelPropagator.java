@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.apache.log4j.spi.LoggerRepository;
+
+/**
+ * <p>
+ * Copies the levels configured in a log4j {@link LoggerRepository} onto the
+ * <code>java.util.logging.Logger</code> of the same name, so that the cheap
+ * <code>Logger.isLoggable(Level)</code> check done by JUL callers already rejects records that
+ * log4j would discard.
+ * </p>
+ * <p>
+ * Only categories with an explicitly configured level (and the root) are copied. JUL resolves the
+ * level of every other Logger from its nearest configured parent, which mirrors the way log4j
+ * computes the effective level. The repository threshold is folded into every copied level.
+ * </p>
+ * <p>
+ * JUL only holds weak references to its Loggers, and a collected Logger loses its level. This
+ * class therefore keeps a strong reference to every JUL Logger it configured. Loggers handed out by
+ * {@link JULBridgeLogManager} read their level from log4j and are left alone.
+ * </p>
+ *
+ * @see JULLog4jBridge#assimilate(LoggerRepository, JULLevelConverter, boolean)
+ */
+class JULLevelPropagator {
+
+    private final LoggerRepository repository;
+    private final JULLevelConverter levelConverter;
+    private final Map<String, java.util.logging.Logger> configuredLoggers = new HashMap<String, java.util.logging.Logger>();
+
+    public JULLevelPropagator(LoggerRepository repository, JULLevelConverter levelConverter) {
+        this.repository = repository;
+        this.levelConverter = levelConverter;
+    }
+
+    /**
+     * Copies the level of the root and of every log4j category currently known to the repository.
+     */
+    public synchronized void propagate() {
+        propagate(repository.getRootLogger());
+        Enumeration categories = repository.getCurrentLoggers();
+        while (categories.hasMoreElements()) {
+            propagate((Category) categories.nextElement());
+        }
+    }
+
+    /**
+     * Copies the level of a single log4j category onto its JUL counterpart. The JUL Logger is only
+     * touched if its level actually differs.
+     *
+     * @param category
+     *            log4j category whose level should be mirrored
+     */
+    public synchronized void propagate(Category category) {
+        String name = category == repository.getRootLogger() ? "" : category.getName();
+        Level level = category.getLevel();
+        if (level == null) {
+            java.util.logging.Logger julLogger = configuredLoggers.remove(name);
+            if (julLogger != null) {
+                julLogger.setLevel(null);
+            }
+            return;
+        }
+        Level threshold = repository.getThreshold();
+        if (threshold != null && !level.isGreaterOrEqual(threshold)) {
+            level = threshold;
+        }
+        java.util.logging.Level julLevel = levelConverter.convertLog4jLevel(level);
+
+        java.util.logging.Logger julLogger = configuredLoggers.get(name);
+        if (julLogger == null) {
+            julLogger = java.util.logging.Logger.getLogger(name);
+            if (julLogger instanceof JULBridgeLogger) {
+                return;
+            }
+            configuredLoggers.put(name, julLogger);
+        }
+        if (!julLevel.equals(julLogger.getLevel())) {
+            julLogger.setLevel(julLevel);
+        }
+    }
+
+    /**
+     * Forgets every JUL Logger configured so far, without touching their levels.
+     */
+    public synchronized void release() {
+        configuredLoggers.clear();
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggerRepository;
+
+/**
+ * <p>
+ * Keeps the levels copied by a {@link JULLevelPropagator} in step with a log4j repository that is
+ * reconfigured at runtime, e.g. through <code>PropertyConfigurator.configureAndWatch</code>.
+ * </p>
+ * <p>
+ * Only the categories a change is reported for are copied again. A level change reported for a
+ * single logger (a {@link org.apache.log4j.component.spi.LoggerRepositoryEx} may fire these) and
+ * an appender added to or removed from a category, which configurators do right after setting
+ * the category's level, are copied to that logger's JUL counterpart immediately. A configurator
+ * run starts with the root logger's appenders and may then set levels of categories without
+ * appenders, which no event reports; so appender changes of the root logger, and changes that
+ * name no category such as a reset or a shutdown, lead to one pass over all log4j categories,
+ * coalesced for a whole burst and made shortly after it. Passes only call <code>setLevel</code>
+ * on JUL Loggers whose level actually differs, and never walk the JUL Logger names.
+ * </p>
+ * <p>
+ * Changing a level directly with <code>Logger.setLevel</code>, as the log4j JMX beans do, is not
+ * reported by a plain {@link org.apache.log4j.Hierarchy}. Call {@link JULLog4jBridge#synchronizeLevels()} after such
+ * changes, or set a check interval to make a pass over all categories at that rate.
+ * </p>
+ */
+class JULLevelSynchronizer implements RepositoryWatcher.Listener {
+
+    /**
+     * Milliseconds to wait after a configuration change before copying the levels.
+     */
+    static final long DEFAULT_SYNC_DELAY = 100;
+
+    private final RepositoryWatcher watcher;
+    private final JULLevelPropagator propagator;
+    private final long syncDelay;
+    private final AtomicBoolean syncPending = new AtomicBoolean();
+    private final Timer timer = new Timer("JULLevelSynchronizer", true);
+    private volatile boolean stopped;
+    private TimerTask checkTask;
+
+    public JULLevelSynchronizer(LoggerRepository repository, JULLevelConverter levelConverter) {
+        this(repository, levelConverter, DEFAULT_SYNC_DELAY);
+    }
+
+    /**
+     * @param repository
+     * @param levelConverter
+     * @param syncDelay
+     *            milliseconds to wait after a configuration change before copying the levels
+     */
+    public JULLevelSynchronizer(LoggerRepository repository, JULLevelConverter levelConverter,
+            long syncDelay) {
+        this.watcher = RepositoryWatcher.getInstance(repository);
+        this.propagator = new JULLevelPropagator(repository, levelConverter);
+        this.syncDelay = syncDelay;
+    }
+
+    /**
+     * Copies all current levels and starts listening for changes.
+     */
+    public void start() {
+        propagator.propagate();
+        watcher.addListener(this);
+    }
+
+    /**
+     * Makes a pass over all log4j categories at the given rate, to pick up changes the repository
+     * does not report. Off unless set.
+     * 
+     * @param checkInterval
+     *            milliseconds between two passes, or 0 for none
+     */
+    public synchronized void setCheckInterval(long checkInterval) {
+        if (checkTask != null) {
+            checkTask.cancel();
+            checkTask = null;
+        }
+        if (checkInterval > 0 && !stopped) {
+            checkTask = new TimerTask() {
+                public void run() {
+                    if (!stopped) {
+                        propagator.propagate();
+                    }
+                }
+            };
+            timer.schedule(checkTask, checkInterval, checkInterval);
+        }
+    }
+
+    /**
+     * Stops listening for changes and releases the JUL Loggers held by the propagator.
+     */
+    public synchronized void stop() {
+        stopped = true;
+        watcher.removeListener(this);
+        timer.cancel();
+        propagator.release();
+    }
+
+    /**
+     * Copies all current levels now.
+     */
+    public void synchronize() {
+        propagator.propagate();
+    }
+
+    public void levelChanged(Logger logger) {
+        propagator.propagate(logger);
+    }
+
+    public void appendersChanged(Category category) {
+        if (category.getParent() == null) {
+            configurationChanged();
+        } else {
+            propagator.propagate(category);
+        }
+    }
+
+    public void configurationChanged() {
+        if (syncPending.compareAndSet(false, true)) {
+            try {
+                timer.schedule(new TimerTask() {
+                    public void run() {
+                        syncPending.set(false);
+                        if (!stopped) {
+                            propagator.propagate();
+                        }
+                    }
+                }, syncDelay);
+            } catch (IllegalStateException e) {
+                // stopped concurrently, nothing left to keep in step
+            }
+        }
+    }
+}
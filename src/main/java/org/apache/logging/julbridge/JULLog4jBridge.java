@@ -10,9 +10,18 @@
  */
 package org.apache.logging.julbridge;
 
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Filter;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import javax.management.ObjectName;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
@@ -27,13 +36,15 @@ import org.apache.log4j.spi.LoggerRepository;
  * The <code>bridge</code>-style method calls use a {@link Filter}
  * implementation that tries to minimise interference with the existing
  * <code>java.util.logging</code> configuration, but can only bridge specific
- * named loggers, and is not able to bridge child loggers automatically. Any
- * Logger that is bridged that contains an existing Filter instance is delegated
- * to when deciding if the LogRecord should continue in the java.util.logging
- * framework, even though the bridge posts the LogRecord into log4j regardless.
- * If there was no existing Filter defined for the bridged Logger, then the
- * bridging Filter returns 'true' to mimic the default behaviour of not having a
- * Filter defined.
+ * named loggers, and is not able to bridge child loggers automatically, unless
+ * a whole namespace is bridged with <code>bridgeJULNamespaces</code>. Any
+ * Logger that is bridged that contains an existing Filter instance is asked
+ * first, and a LogRecord it rejects goes neither to log4j nor further in the
+ * java.util.logging framework. Records the log4j Logger is not enabled for are
+ * not converted. Otherwise the bridging Filter returns 'true' to mimic the
+ * default behaviour of not having a Filter defined, unless the Logger is
+ * bridged exclusively, in which case the JUL Handlers no longer see the
+ * records sent to log4j.
  * </p>
  * <p>
  * The <code>assimilate</code>-style methods are much more dramatic, in that
@@ -57,6 +68,15 @@ import org.apache.log4j.spi.LoggerRepository;
  * Generally though, the slight performance hit is not worth the inflexibility
  * of having to specify each and every Logger you want to bridge.
  * </p>
+ * <p>
+ * Assimilating with level propagation additionally copies the level of every
+ * log4j category with an explicit level onto the JUL Logger of the same name.
+ * JUL callers checking <code>Logger.isLoggable(Level)</code> then reject
+ * disabled records themselves, before any LogRecord is created or published.
+ * The copied levels are kept in step when log4j is reconfigured at runtime; see
+ * {@link #synchronizeLevels()} and {@link #setLevelCheckInterval(long)} for
+ * changes log4j does not report.
+ * </p>
  * 
  * @see JULLevelConverter
  * @see JULLog4jEventConverter#DEFAULT_LEVEL_CONVERTER
@@ -64,6 +84,24 @@ import org.apache.log4j.spi.LoggerRepository;
  */
 public class JULLog4jBridge {
 
+    private static JULLevelSynchronizer levelSynchronizer;
+    private static long levelCheckInterval;
+    private static volatile JULLoggerRouter router;
+    private static volatile LoggerNameTrie<Namespace> namespaces = LoggerNameTrie.empty();
+    /**
+     * Loggers bridged within a namespace, by name. They are held weakly, as
+     * JUL holds them: a Logger nobody refers to may be collected with its
+     * Filter, and the Logger created in its place is bridged again.
+     */
+    private static final ConcurrentMap<String, WeakReference<java.util.logging.Logger>> namespaceLoggers =
+            new ConcurrentHashMap<String, WeakReference<java.util.logging.Logger>>();
+    private static JULLog4jEventConverter sharedConverter;
+    private static final List<ObjectName> mbeanNames = new ArrayList<ObjectName>();
+    private static volatile Handler bridgeHandler;
+    private static volatile JULLevelConverter bridgeLevelConverter =
+            JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER;
+    private static volatile LoggerRepository bridgeRepository;
+
     /**
      * Convenience method that gathers the default LoggerRepository and uses a
      * default Level Converter implemenation.
@@ -93,13 +131,123 @@ public class JULLog4jBridge {
      */
     public static void bridgeJULLogger(String JULLoggerName,
             LoggerRepository repository, JULLevelConverter levelConverter) {
+        bridgeJULLogger(JULLoggerName, repository, levelConverter, false);
+    }
+
+    /**
+     * Bridges the named java.util.logging Logger as
+     * {@link #bridgeJULLogger(String, LoggerRepository, JULLevelConverter)}
+     * does. If <code>exclusive</code> is true, the records are only delivered
+     * to log4j, and the Handlers of the JUL Logger and its parents no longer
+     * receive them.
+     * 
+     * @param JULLoggerName
+     * @param repository
+     * @param levelConverter
+     * @param exclusive
+     */
+    public static void bridgeJULLogger(String JULLoggerName,
+            LoggerRepository repository, JULLevelConverter levelConverter,
+            boolean exclusive) {
         Logger log4jLogger = repository.getLogger(JULLoggerName);
         java.util.logging.Logger JULLogger = java.util.logging.Logger
                 .getLogger(JULLoggerName);
 
         JULLogger.setFilter(new JULBridgeFilter(JULLogger.getFilter(),
-                log4jLogger, new JULLog4jEventConverter(repository,
-                        levelConverter)));
+                log4jLogger, sharedConverter(repository, levelConverter),
+                exclusive));
+    }
+
+    /**
+     * Convenience method that bridges every JUL Logger within the given
+     * namespaces, using the default LoggerRepository and Level Converter.
+     * 
+     * @param prefixes
+     *            Logger names, e.g. <code>com.sun.xml</code>
+     * @see #bridgeJULNamespaces(LoggerRepository, JULLevelConverter, boolean,
+     *      String[])
+     */
+    public static void bridgeJULNamespaces(String... prefixes) {
+        bridgeJULNamespaces(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, false, prefixes);
+    }
+
+    /**
+     * Bridges, as
+     * {@link #bridgeJULLogger(String, LoggerRepository, JULLevelConverter, boolean)}
+     * does, every JUL Logger named by one of the prefixes or below one of them
+     * in the hierarchy: <code>sun.net</code> bridges <code>sun.net</code> and
+     * <code>sun.net.www.protocol.http.HttpURLConnection</code>. The existing
+     * Loggers are found in a single pass over the JUL LogManager. Loggers
+     * created later are bridged as they are added when
+     * {@link JULBridgeLogManager} is the JUL LogManager. The default
+     * LogManager does not report new Loggers, so a Handler is also added to
+     * the Logger of each prefix: it receives the first record of a Logger
+     * created later through the parent Handlers, posts it and bridges that
+     * Logger. In exclusive mode this first record still reaches the JUL
+     * Handlers, and a Logger that does not use its parent Handlers is not
+     * bridged until the next call. The bridged Loggers are not kept from
+     * being collected; one that is collected loses its Filter, and the Logger
+     * later created under the same name is bridged again as a new one would
+     * be. All bridged Loggers share one event
+     * converter. When prefixes overlap, the longest one decides how a Logger is
+     * bridged, and Loggers that are already bridged are left alone.
+     * 
+     * @param repository
+     * @param levelConverter
+     * @param exclusive
+     *            true if the records should no longer reach JUL Handlers
+     * @param prefixes
+     */
+    public static synchronized void bridgeJULNamespaces(
+            LoggerRepository repository, JULLevelConverter levelConverter,
+            boolean exclusive, String... prefixes) {
+        Namespace namespace = new Namespace(sharedConverter(repository,
+                levelConverter), exclusive);
+        LoggerNameTrie<Namespace> newNamespaces = namespaces;
+        for (int i = 0; i < prefixes.length; i++) {
+            newNamespaces = newNamespaces.with(prefixes[i], namespace);
+        }
+        namespaces = newNamespaces;
+
+        for (int i = 0; i < prefixes.length; i++) {
+            java.util.logging.Logger prefixLogger = java.util.logging.Logger
+                    .getLogger(prefixes[i]);
+            Handler[] handlers = prefixLogger.getHandlers();
+            for (int j = 0; j < handlers.length; j++) {
+                if (handlers[j] instanceof Namespace) {
+                    prefixLogger.removeHandler(handlers[j]);
+                }
+            }
+            prefixLogger.addHandler(namespace);
+        }
+
+        java.util.logging.LogManager logManager = java.util.logging.LogManager
+                .getLogManager();
+        Enumeration<String> loggerNames = logManager.getLoggerNames();
+        while (loggerNames.hasMoreElements()) {
+            String name = loggerNames.nextElement();
+            if (newNamespaces.match(name) == namespace) {
+                java.util.logging.Logger JULLogger = logManager.getLogger(name);
+                if (JULLogger != null) {
+                    namespace.bridge(JULLogger);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the event converter bridged Loggers of the repository share
+     */
+    private static synchronized JULLog4jEventConverter sharedConverter(
+            LoggerRepository repository, JULLevelConverter levelConverter) {
+        if (sharedConverter == null
+                || sharedConverter.getRepository() != repository
+                || sharedConverter.getLevelConverter() != levelConverter) {
+            sharedConverter = new JULLog4jEventConverter(repository,
+                    levelConverter);
+        }
+        return sharedConverter;
     }
 
     /**
@@ -110,16 +258,233 @@ public class JULLog4jBridge {
      */
     public static void assimilate(LoggerRepository repository,
             JULLevelConverter levelConverter) {
+        assimilate(repository, levelConverter, false);
+    }
+
+    /**
+     * Completely take over the underlying java.logging sub-system, as
+     * {@link #assimilate(LoggerRepository, JULLevelConverter)} does. If
+     * <code>propagateLevels</code> is true, the level of each log4j category
+     * is also copied onto the matching java.util.logging Logger so that
+     * records log4j would discard are rejected by JUL itself. The levels are
+     * kept in step with later configuration changes of the repository.
+     * 
+     * @param repository
+     * @param levelConverter
+     * @param propagateLevels
+     */
+    public static void assimilate(LoggerRepository repository,
+            JULLevelConverter levelConverter, boolean propagateLevels) {
+        assimilate(repository, levelConverter, propagateLevels,
+                new JULBridgeHandler(repository, new JULLog4jEventConverter(
+                        repository, levelConverter)));
+    }
+
+    /**
+     * Completely take over the underlying java.logging sub-system, as
+     * {@link #assimilate(LoggerRepository, JULLevelConverter, boolean)} does,
+     * converting the LogRecords with the given converter, e.g. one set up to
+     * {@link JULLog4jEventConverter#setDeferred(boolean) defer} conversion
+     * work.
+     * 
+     * @param converter
+     * @param propagateLevels
+     */
+    public static void assimilate(JULLog4jEventConverter converter,
+            boolean propagateLevels) {
+        assimilate(converter.getRepository(), converter.getLevelConverter(),
+                propagateLevels, new JULBridgeHandler(converter.getRepository(),
+                        converter));
+    }
+
+    /**
+     * Completely take over the underlying java.logging sub-system, as
+     * {@link #assimilate(JULLog4jEventConverter, boolean)} does. If
+     * <code>routeDirectly</code> is true, every existing JUL Logger also gets
+     * a Handler of its own that posts to the log4j Logger of the same name,
+     * and no longer passes records to its parents, so records reach log4j
+     * without walking the JUL Logger hierarchy or looking up the log4j Logger
+     * by name. Loggers created later are routed the same way when
+     * {@link JULBridgeLogManager} is the JUL LogManager, and otherwise reach
+     * the root Logger's handler as usual. Loggers that had stopped using their
+     * parents' handlers are left alone. As routed Loggers pass nothing to
+     * their parents, a Handler added later to an intermediate Logger no longer
+     * sees the records of its routed children.
+     * 
+     * @param converter
+     * @param propagateLevels
+     * @param routeDirectly
+     */
+    public static synchronized void assimilate(JULLog4jEventConverter converter,
+            boolean propagateLevels, boolean routeDirectly) {
+        JULBridgeHandler handler = new JULBridgeHandler(converter.getRepository(), converter);
+        assimilate(converter.getRepository(), converter.getLevelConverter(),
+                propagateLevels, handler);
+        if (routeDirectly) {
+            JULLoggerRouter newRouter = new JULLoggerRouter(handler);
+            newRouter.install();
+            router = newRouter;
+        }
+    }
+
+    /**
+     * Completely take over the underlying java.logging sub-system, as
+     * {@link #assimilate(LoggerRepository, JULLevelConverter, boolean)} does,
+     * but register the given Handler on the root JUL Logger instead of the
+     * default synchronous one, e.g. an {@link AsyncJULBridgeHandler} posting
+     * to the same repository. The {@link JULBridgeMetrics} of the bridge
+     * Handler are registered with the platform MBean server as
+     * <code>org.apache.logging.julbridge:type=JULLog4jBridge</code> until the
+     * bridge is repatriated or assimilated again, and so are its
+     * {@link JULBridgeLatency} histograms, if it has any, as
+     * <code>org.apache.logging.julbridge:type=JULLog4jBridgeLatency</code>,
+     * and its {@link JULHeavyHitters}, if it counts any, as
+     * <code>org.apache.logging.julbridge:type=JULLog4jBridgeHeavyHitters</code>.
+     * 
+     * @param repository
+     * @param levelConverter
+     * @param propagateLevels
+     * @param bridgeHandler
+     */
+    public static synchronized void assimilate(LoggerRepository repository,
+            JULLevelConverter levelConverter, boolean propagateLevels,
+            Handler bridgeHandler) {
 
+        stopRouter();
+        JULLog4jBridge.bridgeHandler = null;
         java.util.logging.LogManager.getLogManager().reset();
+        stopLevelSynchronizer();
+        unregisterMetrics();
 
         // clearAllFilters(java.util.logging.LogManager.getLogManager());
 
         java.util.logging.Logger.getLogger("").setLevel(
                 levelConverter.convertLog4jLevel(repository.getThreshold()));
-        java.util.logging.Logger.getLogger("").addHandler(
-                new JULBridgeHandler(repository, new JULLog4jEventConverter(
-                        repository, levelConverter)));
+        if (propagateLevels) {
+            levelSynchronizer = new JULLevelSynchronizer(repository, levelConverter);
+            levelSynchronizer.start();
+            levelSynchronizer.setCheckInterval(levelCheckInterval);
+        }
+        // registered first, as JMX logs the registration through JUL
+        if (bridgeHandler instanceof JULBridgeHandler) {
+            JULBridgeHandler handler = (JULBridgeHandler) bridgeHandler;
+            registerMetrics(handler.getMetrics(), handler.getLatency(),
+                    handler.getHeavyHitters());
+        } else if (bridgeHandler instanceof AsyncJULBridgeHandler) {
+            AsyncJULBridgeHandler handler = (AsyncJULBridgeHandler) bridgeHandler;
+            registerMetrics(handler.getMetrics(), handler.getLatency(),
+                    handler.getHeavyHitters());
+        }
+        java.util.logging.Logger.getLogger("").addHandler(bridgeHandler);
+        JULLog4jBridge.bridgeLevelConverter = levelConverter;
+        JULLog4jBridge.bridgeRepository = repository;
+        JULLog4jBridge.bridgeHandler = bridgeHandler;
+    }
+
+    /**
+     * @return the Handler the bridge was assimilated with, or null
+     */
+    static Handler getBridgeHandler() {
+        return bridgeHandler;
+    }
+
+    /**
+     * @return the repository the bridge was assimilated with, or the default
+     *         one
+     */
+    static LoggerRepository getRepository() {
+        LoggerRepository repository = bridgeRepository;
+        return repository != null ? repository : LogManager.getLoggerRepository();
+    }
+
+    /**
+     * @return the level converter the bridge was assimilated with, or the
+     *         default one
+     */
+    static JULLevelConverter getLevelConverter() {
+        return bridgeLevelConverter;
+    }
+
+    private static void registerMetrics(JULBridgeMetrics metrics,
+            JULBridgeLatency latency, JULHeavyHitters heavyHitters) {
+        mbeanNames.add(metrics.register("JULLog4jBridge", null));
+        if (latency != null) {
+            mbeanNames.add(latency.register("JULLog4jBridgeLatency", null));
+        }
+        if (heavyHitters != null) {
+            mbeanNames.add(heavyHitters.register("JULLog4jBridgeHeavyHitters", null));
+        }
+    }
+
+    private static void unregisterMetrics() {
+        for (int i = 0; i < mbeanNames.size(); i++) {
+            JULBridgeMetrics.unregister(mbeanNames.get(i));
+        }
+        mbeanNames.clear();
+    }
+
+    private static void stopRouter() {
+        if (router != null) {
+            router.uninstall();
+            router = null;
+        }
+    }
+
+    /**
+     * Routes a JUL Logger created after the bridge was assimilated with direct
+     * routing, or bridges it if it is within a bridged namespace, as
+     * {@link JULBridgeLogManager} does for every new Logger.
+     * 
+     * @param logger
+     */
+    static void route(java.util.logging.Logger logger) {
+        JULLoggerRouter localRouter = router;
+        if (localRouter != null) {
+            localRouter.route(logger);
+        }
+        LoggerNameTrie<Namespace> localNamespaces = namespaces;
+        if (localNamespaces.size() > 0 && logger.getName() != null) {
+            Namespace namespace = localNamespaces.match(logger.getName());
+            if (namespace != null) {
+                namespace.bridge(logger);
+            }
+        }
+    }
+
+    private static void stopLevelSynchronizer() {
+        if (levelSynchronizer != null) {
+            levelSynchronizer.stop();
+            levelSynchronizer = null;
+        }
+    }
+
+    /**
+     * Copies the current log4j levels onto the JUL Loggers straight away, if
+     * the bridge was assimilated with level propagation. Configurators are
+     * picked up automatically, but a plain log4j Hierarchy does not report
+     * levels changed directly through <code>Logger.setLevel</code> (e.g. via
+     * JMX), so call this after such changes.
+     */
+    public static synchronized void synchronizeLevels() {
+        if (levelSynchronizer != null) {
+            levelSynchronizer.synchronize();
+        }
+    }
+
+    /**
+     * Copies all log4j levels onto the JUL Loggers at the given rate, if the
+     * bridge is assimilated with level propagation, to pick up the changes
+     * {@link #synchronizeLevels()} is otherwise needed for. Each check walks
+     * all log4j categories, so none is made unless an interval is set.
+     * 
+     * @param checkInterval
+     *            milliseconds between two checks, or 0 (the default) for none
+     */
+    public static synchronized void setLevelCheckInterval(long checkInterval) {
+        levelCheckInterval = checkInterval;
+        if (levelSynchronizer != null) {
+            levelSynchronizer.setCheckInterval(checkInterval);
+        }
     }
 
     private static void clearAllFilters(java.util.logging.LogManager logManager) {
@@ -127,7 +492,9 @@ public class JULLog4jBridge {
         while (enumeration.hasMoreElements()) {
             java.util.logging.Logger logger = logManager.getLogger(enumeration
                     .nextElement().toString());
-            logger.setFilter(null);
+            if (logger != null) {
+                logger.setFilter(null);
+            }
         }
     }
 
@@ -144,17 +511,88 @@ public class JULLog4jBridge {
      * java.util.logging subsystem by resetting that framework back to it's
      * default configuration (removes all Handlers and Filters)
      */
-    public static void repatriate() {
+    public static synchronized void repatriate() {
 
+        stopRouter();
+        stopLevelSynchronizer();
+        bridgeHandler = null;
+        bridgeLevelConverter = JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER;
+        bridgeRepository = null;
+        namespaces = LoggerNameTrie.empty();
+        namespaceLoggers.clear();
         java.util.logging.LogManager logManager = java.util.logging.LogManager
                 .getLogManager();
         Enumeration loggerNames = logManager.getLoggerNames();
         while (loggerNames.hasMoreElements()) {
-            logManager.getLogger(loggerNames.nextElement().toString())
-                    .setFilter(null);
+            // Loggers nobody refers to may be collected while iterating
+            java.util.logging.Logger logger = logManager.getLogger(loggerNames
+                    .nextElement().toString());
+            if (logger != null) {
+                logger.setFilter(null);
+            }
         }
         logManager.reset();
+        unregisterMetrics();
 
     }
 
+    /**
+     * How the Loggers of a bridged namespace are bridged. Added to the Logger
+     * of each prefix, it also bridges the Loggers created later under the
+     * default LogManager when their first record reaches it.
+     */
+    private static final class Namespace extends Handler {
+        private final JULLog4jEventConverter converter;
+        private final boolean exclusive;
+
+        Namespace(JULLog4jEventConverter converter, boolean exclusive) {
+            this.converter = converter;
+            this.exclusive = exclusive;
+        }
+
+        /**
+         * @param JULLogger
+         * @return the new Filter of the Logger, or null if it was already
+         *         bridged
+         */
+        JULBridgeFilter bridge(java.util.logging.Logger JULLogger) {
+            namespaceLoggers.put(JULLogger.getName(),
+                    new WeakReference<java.util.logging.Logger>(JULLogger));
+            Filter filter = JULLogger.getFilter();
+            if (filter instanceof JULBridgeFilter) {
+                return null;
+            }
+            JULBridgeFilter bridgeFilter = new JULBridgeFilter(filter,
+                    converter.getRepository().getLogger(JULLogger.getName()),
+                    converter, exclusive);
+            JULLogger.setFilter(bridgeFilter);
+            return bridgeFilter;
+        }
+
+        public void publish(LogRecord record) {
+            String name = record.getLoggerName();
+            if (name == null || isBridged(name) || namespaces.match(name) != this) {
+                return;
+            }
+            java.util.logging.Logger JULLogger = java.util.logging.LogManager
+                    .getLogManager().getLogger(name);
+            if (JULLogger != null) {
+                JULBridgeFilter bridgeFilter = bridge(JULLogger);
+                if (bridgeFilter != null) {
+                    bridgeFilter.post(record);
+                }
+            }
+        }
+
+        private static boolean isBridged(String name) {
+            WeakReference<java.util.logging.Logger> bridged = namespaceLoggers.get(name);
+            return bridged != null && bridged.get() != null;
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
 }
@@ -10,12 +10,14 @@
  */
 package org.apache.logging.julbridge;
 
-import java.util.Properties;
+import java.util.Arrays;
+import java.util.Hashtable;
 import java.util.logging.LogRecord;
 
+import org.apache.log4j.Category;
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
-import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
 import org.apache.log4j.spi.LocationInfo;
 import org.apache.log4j.spi.LoggerRepository;
 import org.apache.log4j.spi.LoggingEvent;
@@ -38,49 +40,72 @@ private static final String UNKNOWN_LOGGER_NAME = "unknown.jul.logger";
      * <li> SEVERE -> ERROR</li>
      * <li> ALL -> ALL</li>
      * <li> OFF -> OFF</li>
-     * Anything else is defaulted to DEBUG
+     * Anything else is defaulted to DEBUG. In the other direction TRACE maps to FINEST,
+     * DEBUG to FINER, ERROR and FATAL to SEVERE, and anything unknown to FINE.
+     * <p>
+     * Both Level classes compare by their integer value, and all standard values are
+     * multiples of a fixed step, so the mapping is a lookup in a small table indexed by
+     * <code>intValue() / step</code> rather than a chain of <code>equals</code> calls. Custom
+     * levels with the same integer value as a standard level map exactly like it.
+     * </p>
      */
     private static final class DefaultLevelConverter implements JULLevelConverter {
 
-        public Level convertJuliLevel(java.util.logging.Level juliLevel) {
+        private static final int JULI_LEVEL_STEP = 100;
+        private static final int LOG4J_LEVEL_STEP = Level.TRACE_INT;
+
+        private static final Level[] JULI_TO_LOG4J =
+                new Level[java.util.logging.Level.SEVERE.intValue() / JULI_LEVEL_STEP + 1];
+        private static final java.util.logging.Level[] LOG4J_TO_JULI =
+                new java.util.logging.Level[Level.FATAL_INT / LOG4J_LEVEL_STEP + 1];
+
+        static {
+            Arrays.fill(JULI_TO_LOG4J, Level.DEBUG);
+            mapJuliLevel(java.util.logging.Level.FINEST, Level.TRACE);
+            mapJuliLevel(java.util.logging.Level.FINER, Level.DEBUG);
+            mapJuliLevel(java.util.logging.Level.FINE, Level.DEBUG);
+            mapJuliLevel(java.util.logging.Level.INFO, Level.INFO);
+            mapJuliLevel(java.util.logging.Level.WARNING, Level.WARN);
+            mapJuliLevel(java.util.logging.Level.SEVERE, Level.ERROR);
 
-            if (juliLevel.equals(java.util.logging.Level.FINEST)) {
-                return Level.TRACE;
-            } else if (juliLevel.equals(java.util.logging.Level.FINER)) {
-                return Level.DEBUG;
-            } else if (juliLevel.equals(java.util.logging.Level.FINE)) {
-                return Level.DEBUG;
-            } else if (juliLevel.equals(java.util.logging.Level.INFO)) {
-                return Level.INFO;
-            } else if (juliLevel.equals(java.util.logging.Level.WARNING)) {
-                return Level.WARN;
-            } else if (juliLevel.equals(java.util.logging.Level.SEVERE)) {
-                return Level.ERROR;
-            } else if (juliLevel.equals(java.util.logging.Level.ALL)) {
+            Arrays.fill(LOG4J_TO_JULI, java.util.logging.Level.FINE);
+            mapLog4jLevel(Level.TRACE, java.util.logging.Level.FINEST);
+            mapLog4jLevel(Level.DEBUG, java.util.logging.Level.FINER);
+            mapLog4jLevel(Level.INFO, java.util.logging.Level.INFO);
+            mapLog4jLevel(Level.WARN, java.util.logging.Level.WARNING);
+            mapLog4jLevel(Level.ERROR, java.util.logging.Level.SEVERE);
+            mapLog4jLevel(Level.FATAL, java.util.logging.Level.SEVERE);
+        }
+
+        private static void mapJuliLevel(java.util.logging.Level juliLevel, Level log4jLevel) {
+            JULI_TO_LOG4J[juliLevel.intValue() / JULI_LEVEL_STEP] = log4jLevel;
+        }
+
+        private static void mapLog4jLevel(Level log4jLevel, java.util.logging.Level juliLevel) {
+            LOG4J_TO_JULI[log4jLevel.toInt() / LOG4J_LEVEL_STEP] = juliLevel;
+        }
+
+        public Level convertJuliLevel(java.util.logging.Level juliLevel) {
+            int value = juliLevel.intValue();
+            if (value >= 0 && value % JULI_LEVEL_STEP == 0
+                    && value / JULI_LEVEL_STEP < JULI_TO_LOG4J.length) {
+                return JULI_TO_LOG4J[value / JULI_LEVEL_STEP];
+            } else if (value == Integer.MIN_VALUE) {
                 return Level.ALL;
-            } else if (juliLevel.equals(java.util.logging.Level.OFF)) {
+            } else if (value == Integer.MAX_VALUE) {
                 return Level.OFF;
             }
             return Level.DEBUG;
-
         }
 
         public java.util.logging.Level convertLog4jLevel(Level log4jLevel) {
-            if (log4jLevel.equals(Level.TRACE)) {
-                return java.util.logging.Level.FINEST;
-            } else if (log4jLevel.equals(Level.DEBUG)) {
-                return java.util.logging.Level.FINER;
-            } else if (log4jLevel.equals(Level.INFO)) {
-                return java.util.logging.Level.INFO;
-            } else if (log4jLevel.equals(Level.WARN)) {
-                return java.util.logging.Level.WARNING;
-            } else if (log4jLevel.equals(Level.ERROR)) {
-                return java.util.logging.Level.SEVERE;
-            } else if (log4jLevel.equals(Level.FATAL)) {
-                return java.util.logging.Level.SEVERE;
-            } else if (log4jLevel.equals(Level.ALL)) {
+            int value = log4jLevel.toInt();
+            if (value >= 0 && value % LOG4J_LEVEL_STEP == 0
+                    && value / LOG4J_LEVEL_STEP < LOG4J_TO_JULI.length) {
+                return LOG4J_TO_JULI[value / LOG4J_LEVEL_STEP];
+            } else if (value == Level.ALL_INT) {
                 return java.util.logging.Level.ALL;
-            } else if (log4jLevel.equals(Level.OFF)) {
+            } else if (value == Level.OFF_INT) {
                 return java.util.logging.Level.OFF;
             }
             return java.util.logging.Level.FINE;
@@ -89,6 +114,12 @@ private static final String UNKNOWN_LOGGER_NAME = "unknown.jul.logger";
 
     private final LoggerRepository repository;
     private final JULLevelConverter levelConverter;
+    private volatile boolean deferred;
+    private volatile boolean reuseLocationInfo;
+    private volatile boolean captureMDC;
+    private volatile JULRecordThrottle throttle;
+    private volatile JULBridgeLatency latency;
+    private volatile JULHeavyHitters heavyHitters;
 
     public static final JULLevelConverter DEFAULT_LEVEL_CONVERTER = new DefaultLevelConverter();
 
@@ -109,6 +140,123 @@ private static final String UNKNOWN_LOGGER_NAME = "unknown.jul.logger";
         this.levelConverter = levelConverter;
     }
 
+    public LoggerRepository getRepository() {
+        return repository;
+    }
+
+    public JULLevelConverter getLevelConverter() {
+        return levelConverter;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    /**
+     * When true, records are converted into {@link JULLoggingEvent}s, which build the location,
+     * thread name and throwable information only when an appender asks for them. Defaults to
+     * false.
+     * 
+     * @param deferred
+     */
+    public void setDeferred(boolean deferred) {
+        this.deferred = deferred;
+    }
+
+    public boolean isReuseLocationInfo() {
+        return reuseLocationInfo;
+    }
+
+    /**
+     * When true, the bridge handlers convert records into {@link JULLoggingEvent}s that share one
+     * {@link LocationInfo} per thread, refilled for each event that is asked for it, instead of
+     * building one per record. This is only done for categories whose appenders are all known not
+     * to keep events once appended (console, file and other
+     * {@link org.apache.log4j.WriterAppender}s); records for any other category, and records
+     * converted by {@link #convert(LogRecord)}, get a location of their own as usual. Only the
+     * location holder is shared: every record still gets an event of its own, as the time stamp
+     * and category name of a {@link LoggingEvent} are final. Defaults to false.
+     * 
+     * @param reuseLocationInfo
+     */
+    public void setReuseLocationInfo(boolean reuseLocationInfo) {
+        this.reuseLocationInfo = reuseLocationInfo;
+    }
+
+    public boolean isCaptureMDC() {
+        return captureMDC;
+    }
+
+    /**
+     * When true, records converted on the thread that logged them get the log4j {@link MDC} of
+     * that thread as their properties. Eagerly converted events copy it; deferred ones
+     * ({@link #setDeferred(boolean)}) read it while being appended on that thread and only copy it
+     * if an appender asks them to keep it ({@link LoggingEvent#getMDCCopy()}). Records converted
+     * on any other thread, or while this is false (the default), have no properties, and no map
+     * is allocated for them.
+     * 
+     * @param captureMDC
+     */
+    public void setCaptureMDC(boolean captureMDC) {
+        this.captureMDC = captureMDC;
+    }
+
+    public JULRecordThrottle getThrottle() {
+        return throttle;
+    }
+
+    /**
+     * Sets the throttle the bridge handlers pass records through before converting them, or null
+     * (the default) to let every record through. Records that the log4j logger would discard
+     * anyway are not counted.
+     * 
+     * @param throttle
+     */
+    public void setThrottle(JULRecordThrottle throttle) {
+        this.throttle = throttle;
+    }
+
+    public JULBridgeLatency getLatency() {
+        return latency;
+    }
+
+    /**
+     * Sets the histograms the bridge handlers record the duration of each stage of posting a
+     * record into, or null (the default) to time nothing.
+     * 
+     * @param latency
+     */
+    public void setLatency(JULBridgeLatency latency) {
+        this.latency = latency;
+    }
+
+    public JULHeavyHitters getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    /**
+     * Sets the sketch the bridge handlers count each record they convert into, or null (the
+     * default) to count nothing.
+     * 
+     * @param heavyHitters
+     */
+    public void setHeavyHitters(JULHeavyHitters heavyHitters) {
+        this.heavyHitters = heavyHitters;
+    }
+
+    /**
+     * Converts the JUL {@link java.util.logging.Level} of a record into its log4j equivalent
+     * using the configured {@link JULLevelConverter}. This is cheap compared to
+     * {@link #convert(LogRecord)} and allows callers to reject a record before any event is built.
+     * 
+     * @param juliLevel
+     *            level of the {@link LogRecord}
+     * @return matching log4j {@link Level}
+     */
+    public Level convertLevel(java.util.logging.Level juliLevel) {
+        return levelConverter.convertJuliLevel(juliLevel);
+    }
+
     /**
      * Converts a {@link LogRecord} class into a {@link LoggingEvent} instance mapping the
      * loggernames identically.
@@ -122,21 +270,63 @@ private static final String UNKNOWN_LOGGER_NAME = "unknown.jul.logger";
         if (loggerName == null) {
     	    loggerName = UNKNOWN_LOGGER_NAME;
         }
-        Logger logger = repository.getLogger(loggerName);
-        String sourceClassName = record.getSourceClassName();
-        String sourceMethodName = record.getSourceMethodName();
-        LocationInfo locationInfo = new LocationInfo("?", sourceClassName, sourceMethodName, "?");
+        return convert(record, repository.getLogger(loggerName));
+    }
+
+    /**
+     * Converts a {@link LogRecord} into a {@link LoggingEvent} of a log4j logger the caller has
+     * already resolved, saving a second lookup in the {@link LoggerRepository}.
+     * 
+     * @param record
+     *            to convert
+     * @param logger
+     *            log4j logger the event is posted to
+     * @return converted {@link LoggingEvent}
+     */
+    public LoggingEvent convert(LogRecord record, Category logger) {
+        return convert(record, logger, false, true);
+    }
+
+    /**
+     * @param record
+     *            to convert
+     * @param logger
+     *            log4j logger the event is posted to
+     * @param transientEvent
+     *            true if the appenders of the logger are known not to keep the event, in which
+     *            case it may share its location with other events of the thread
+     * @param locationNeeded
+     *            false if the appenders of the logger are known never to ask for the location,
+     *            in which case an eagerly converted event does not make JUL infer the caller
+     * @return converted {@link LoggingEvent}
+     */
+    LoggingEvent convert(LogRecord record, Category logger, boolean transientEvent,
+            boolean locationNeeded) {
+        String loggerName = logger.getName();
+        boolean lookupMDC = captureMDC && ThreadNames.isCurrentThread(record);
+        if ((transientEvent && reuseLocationInfo) || deferred) {
+            return new JULLoggingEvent(loggerName, logger, convertLevel(record.getLevel()), record,
+                    transientEvent && reuseLocationInfo, lookupMDC);
+        }
+        LocationInfo locationInfo = LocationInfo.NA_LOCATION_INFO;
+        if (locationNeeded) {
+            locationInfo = new LocationInfo("?", record.getSourceClassName(), record
+                    .getSourceMethodName(), "?");
+        }
         String ndc = null;
-        // TODO get thread name properly.
-        String threadName = String.valueOf(record.getThreadID());
+        String threadName = ThreadNames.getName(record.getThreadID());
         ThrowableInformation throwableInformation = record.getThrown() == null ? null
                 : new ThrowableInformation(record.getThrown());
         LoggingEvent event = new LoggingEvent(loggerName, logger, record.getMillis(),
-                levelConverter.convertJuliLevel(record.getLevel()), record.getMessage(),
-                threadName, throwableInformation, ndc, locationInfo, new Properties()
-
-        );
+                convertLevel(record.getLevel()), JULMessage.of(record),
+                threadName, throwableInformation, ndc, locationInfo,
+                lookupMDC ? callerMDC() : null);
 
         return event;
     }
+
+    private static Hashtable callerMDC() {
+        Hashtable context = MDC.getContext();
+        return context == null || context.isEmpty() ? null : context;
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.apache.log4j.Category;
+
+/**
+ * <p>
+ * Gives JUL Loggers a {@link Handler} of their own that posts straight to the log4j logger of the
+ * same name, and stops them from passing records on to their parents. A record then reaches log4j
+ * without JUL walking up to the root Logger, and without the bridge looking up the log4j logger by
+ * name: the handler resolves it once and keeps it.
+ * </p>
+ * <p>
+ * The router is shared by every routed Logger and remembers them weakly, so JUL can still discard
+ * Loggers nobody refers to. Loggers created after {@link #install()} are only routed if someone
+ * calls {@link #route(Logger)} for them, which {@link JULBridgeLogManager} does; until then their
+ * records reach the handler of the nearest routed parent or of the root Logger as before. Records
+ * are posted to the log4j logger named after the JUL Logger they were logged through.
+ * </p>
+ * <p>
+ * A Logger is only routed if its records reached the root Logger before, i.e. neither it nor any
+ * of its parents had stopped using their parents' handlers. {@link #uninstall()} gives each Logger
+ * back the setting it had. While routed, a Logger passes nothing to its parents, so a Handler added
+ * later to an intermediate Logger such as <code>com.example</code> does not see the records of
+ * the routed <code>com.example.Service</code>.
+ * </p>
+ */
+final class JULLoggerRouter {
+
+    private final JULBridgeHandler delegate;
+    private final Map<Logger, RouteHandler> routes = new WeakHashMap<Logger, RouteHandler>();
+
+    JULLoggerRouter(JULBridgeHandler delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Routes every JUL Logger that currently exists, except the root Logger.
+     */
+    void install() {
+        LogManager logManager = LogManager.getLogManager();
+        List<String> names = new ArrayList<String>();
+        for (Enumeration e = logManager.getLoggerNames(); e.hasMoreElements();) {
+            names.add((String) e.nextElement());
+        }
+        for (String name : names) {
+            Logger logger = logManager.getLogger(name);
+            if (logger != null) {
+                route(logger);
+            }
+        }
+    }
+
+    /**
+     * Gives the Logger its own route to log4j, unless it is the root Logger, already routed, or its
+     * records do not reach the root Logger. The handler is added before the Logger stops using its
+     * parents' handlers, so a record logged at that very moment may reach log4j twice but is never
+     * lost.
+     * 
+     * @param logger
+     */
+    synchronized void route(Logger logger) {
+        String name = logger.getName();
+        if (name == null || name.length() == 0 || routes.containsKey(logger)
+                || !reachesRoot(logger)) {
+            return;
+        }
+        RouteHandler handler = new RouteHandler(delegate, name, logger.getUseParentHandlers());
+        routes.put(logger, handler);
+        logger.addHandler(handler);
+        logger.setUseParentHandlers(false);
+    }
+
+    /**
+     * @param logger
+     * @return true if the records of the Logger reached the root Logger's handlers before it or
+     *         its parents were routed
+     */
+    private boolean reachesRoot(Logger logger) {
+        for (Logger current = logger; current.getParent() != null; current = current.getParent()) {
+            RouteHandler route = routes.get(current);
+            if (route == null ? !current.getUseParentHandlers() : !route.useParentHandlers) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the routes again and gives the Loggers back their previous use of their parents'
+     * handlers.
+     */
+    synchronized void uninstall() {
+        for (Map.Entry<Logger, RouteHandler> route : routes.entrySet()) {
+            Logger logger = route.getKey();
+            if (logger != null) {
+                logger.setUseParentHandlers(route.getValue().useParentHandlers);
+                logger.removeHandler(route.getValue());
+            }
+        }
+        routes.clear();
+    }
+
+    /**
+     * @return the number of Loggers currently routed
+     */
+    synchronized int size() {
+        return routes.size();
+    }
+
+    /**
+     * Handler of a single JUL Logger, which knows the log4j logger it posts to.
+     */
+    private static final class RouteHandler extends Handler {
+        private final JULBridgeHandler delegate;
+        private final String name;
+        /** Whether the Logger used its parents' handlers before it was routed. */
+        final boolean useParentHandlers;
+        private volatile Category target;
+
+        RouteHandler(JULBridgeHandler delegate, String name, boolean useParentHandlers) {
+            this.delegate = delegate;
+            this.name = name;
+            this.useParentHandlers = useParentHandlers;
+        }
+
+        public void publish(LogRecord record) {
+            if (!name.equals(record.getLoggerName())) {
+                // from a child Logger that is not routed yet
+                delegate.publish(record);
+                return;
+            }
+            Category localTarget = target;
+            if (localTarget == null) {
+                localTarget = delegate.getCategory(name);
+                target = localTarget;
+            }
+            delegate.publish(record, localTarget);
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws SecurityException {
+        }
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Hashtable;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Level;
+import org.apache.log4j.MDC;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.ThrowableInformation;
+
+/**
+ * <p>
+ * {@link LoggingEvent} that keeps the {@link LogRecord} it was converted from and builds the
+ * location, thread name and throwable information only when an appender first asks for them.
+ * Appenders whose layout only prints the message never pay for them.
+ * </p>
+ * <p>
+ * As with any log4j event, the location is found by JUL inspecting the stack of the thread that
+ * logged the record, so it must first be asked for on that thread (which is the case for
+ * synchronous appenders, and for asynchronous ones configured to capture location information),
+ * unless the caller was already inferred, as {@link AsyncJULBridgeHandler} does.
+ * </p>
+ * <p>
+ * The event is serialized as a plain {@link LoggingEvent}.
+ * </p>
+ * <p>
+ * Events converted with {@link JULLog4jEventConverter#setReuseLocationInfo(boolean)} for
+ * appenders that do not keep them return a location that belongs to the thread asking for it,
+ * and that is refilled for the next event that thread is asked about.
+ * </p>
+ *
+ * @see JULLog4jEventConverter#setDeferred(boolean)
+ */
+public class JULLoggingEvent extends LoggingEvent {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient LogRecord record;
+    private final transient boolean reuseLocationInfo;
+    private final transient Thread mdcThread;
+
+    private transient volatile LocationInfo locationInfo;
+    private transient volatile ThrowableInformation throwableInformation;
+    private transient volatile String threadName;
+    private transient volatile boolean locationRequested;
+    private transient volatile Map mdcCopy;
+
+    /**
+     * @param fqnOfCategoryClass
+     * @param logger
+     *            log4j logger the event is posted to
+     * @param level
+     *            log4j level of the record
+     * @param record
+     *            the JUL record
+     */
+    public JULLoggingEvent(String fqnOfCategoryClass, Category logger, Level level,
+            LogRecord record) {
+        this(fqnOfCategoryClass, logger, level, record, false, false);
+    }
+
+    /**
+     * @param fqnOfCategoryClass
+     * @param logger
+     * @param level
+     * @param record
+     * @param reuseLocationInfo
+     *            true to return the location holder of the asking thread
+     * @param lookupMDC
+     *            true if the record was logged by the current thread and the event takes its
+     *            properties from the MDC of that thread
+     */
+    JULLoggingEvent(String fqnOfCategoryClass, Category logger, Level level, LogRecord record,
+            boolean reuseLocationInfo, boolean lookupMDC) {
+        super(fqnOfCategoryClass, logger, record.getMillis(), level, JULMessage.of(record), null,
+                null, null, null, null);
+        this.record = record;
+        this.reuseLocationInfo = reuseLocationInfo;
+        this.mdcThread = lookupMDC ? Thread.currentThread() : null;
+    }
+
+    /**
+     * @return the JUL record this event was converted from
+     */
+    public LogRecord getLogRecord() {
+        return record;
+    }
+
+    public LocationInfo getLocationInformation() {
+        if (reuseLocationInfo) {
+            locationRequested = true;
+            return MutableLocationInfo.of(record);
+        }
+        LocationInfo info = locationInfo;
+        if (info == null) {
+            info = new LocationInfo("?", record.getSourceClassName(),
+                    record.getSourceMethodName(), "?");
+            locationInfo = info;
+        }
+        return info;
+    }
+
+    public String getThreadName() {
+        String name = threadName;
+        if (name == null) {
+            name = ThreadNames.getName(record.getThreadID());
+            threadName = name;
+        }
+        return name;
+    }
+
+    public ThrowableInformation getThrowableInformation() {
+        ThrowableInformation information = throwableInformation;
+        if (information == null && record.getThrown() != null) {
+            information = new ThrowableInformation(record.getThrown());
+            throwableInformation = information;
+        }
+        return information;
+    }
+
+    public String[] getThrowableStrRep() {
+        ThrowableInformation information = getThrowableInformation();
+        return information == null ? null : information.getThrowableStrRep();
+    }
+
+    /**
+     * When the event takes its properties from the MDC of the thread that logged the record, the
+     * MDC is read directly on that thread until {@link #getMDCCopy()} copies it. Properties set on
+     * such an event with {@link #setProperty(String, String)} are ignored.
+     */
+    public Object getMDC(String key) {
+        if (mdcThread == null) {
+            return super.getMDC(key);
+        }
+        Map copy = mdcCopy;
+        if (copy != null) {
+            return copy.get(key);
+        }
+        return mdcThread == Thread.currentThread() ? MDC.get(key) : null;
+    }
+
+    public void getMDCCopy() {
+        if (mdcThread == null) {
+            super.getMDCCopy();
+        } else if (mdcCopy == null) {
+            Hashtable context = mdcThread == Thread.currentThread() ? MDC.getContext() : null;
+            mdcCopy = context == null || context.isEmpty() ? Collections.EMPTY_MAP : new HashMap(
+                    context);
+        }
+    }
+
+    public Map getProperties() {
+        if (mdcThread == null) {
+            return super.getProperties();
+        }
+        getMDCCopy();
+        return Collections.unmodifiableMap(mdcCopy);
+    }
+
+    public Set getPropertyKeySet() {
+        return getProperties().keySet();
+    }
+
+    /**
+     * Replaces this event by an eagerly built {@link LoggingEvent} when serialized, since the
+     * fields written by {@link LoggingEvent} are never filled in by this class. The location is
+     * only included if it was asked for before.
+     */
+    private Object writeReplace() {
+        LocationInfo info = locationInfo;
+        if (reuseLocationInfo && locationRequested) {
+            info = new LocationInfo("?", record.getSourceClassName(), record.getSourceMethodName(),
+                    "?");
+        }
+        return new LoggingEvent(getFQNOfLoggerClass(), getLogger(), getTimeStamp(), getLevel(),
+                getMessage(), getThreadName(), getThrowableInformation(), getNDC(), info,
+                getProperties());
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.MissingResourceException;
+import java.util.ResourceBundle;
+import java.util.logging.LogRecord;
+
+/**
+ * <p>
+ * Message of a {@link LogRecord} that has parameters or a {@link ResourceBundle}. It is formatted
+ * the way {@link java.util.logging.Formatter#formatMessage(LogRecord)} does, but only when first
+ * rendered, i.e. when log4j calls {@link #toString()} for an appender that prints the message.
+ * Records dropped before that never pay for the formatting.
+ * </p>
+ * <p>
+ * Parsed patterns are kept in a bounded cache shared by all messages.
+ * </p>
+ */
+public final class JULMessage {
+
+    private static final MessageFormatCache FORMATS = new MessageFormatCache(
+            MessageFormatCache.DEFAULT_MAX_SIZE);
+
+    private final String pattern;
+    private final Object[] parameters;
+    private final ResourceBundle resourceBundle;
+    private volatile String formatted;
+
+    /**
+     * @param pattern
+     *            the message, or the key of the message in the bundle
+     * @param parameters
+     *            may be null
+     * @param resourceBundle
+     *            may be null
+     */
+    public JULMessage(String pattern, Object[] parameters, ResourceBundle resourceBundle) {
+        this.pattern = pattern;
+        this.parameters = parameters;
+        this.resourceBundle = resourceBundle;
+    }
+
+    /**
+     * Returns the message of the record, wrapped in a JULMessage only if it needs formatting.
+     *
+     * @param record
+     * @return the message of the record, as a String when it has neither parameters nor a bundle
+     */
+    public static Object of(LogRecord record) {
+        String message = record.getMessage();
+        Object[] parameters = record.getParameters();
+        ResourceBundle bundle = record.getResourceBundle();
+        if (message == null || ((parameters == null || parameters.length == 0) && bundle == null)) {
+            return message;
+        }
+        return new JULMessage(message, parameters, bundle);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    public ResourceBundle getResourceBundle() {
+        return resourceBundle;
+    }
+
+    /**
+     * @return the formatted message
+     */
+    public String toString() {
+        String message = formatted;
+        if (message == null) {
+            message = format();
+            formatted = message;
+        }
+        return message;
+    }
+
+    private String format() {
+        String format = pattern;
+        if (resourceBundle != null) {
+            try {
+                format = resourceBundle.getString(pattern);
+            } catch (MissingResourceException e) {
+                format = pattern;
+            }
+        }
+        if (parameters == null || parameters.length == 0 || !hasParameterReference(format)) {
+            return format;
+        }
+        try {
+            return FORMATS.format(format, parameters);
+        } catch (RuntimeException e) {
+            return format;
+        }
+    }
+
+    /**
+     * Same check as {@link java.util.logging.Formatter#formatMessage(LogRecord)}: only patterns
+     * containing "{" followed by a digit are passed to MessageFormat.
+     */
+    private static boolean hasParameterReference(String format) {
+        int index = -1;
+        int fence = format.length() - 1;
+        while ((index = format.indexOf('{', index + 1)) > -1 && index < fence) {
+            char digit = format.charAt(index + 1);
+            if (digit >= '0' && digit <= '9') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,305 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * <p>
+ * Limits how many similar {@link LogRecord}s the bridge handlers pass on to log4j. Records are
+ * similar when they have the same logger name, level and message (before its parameters are
+ * applied), and each such group gets a token bucket that lets through <code>burst</code> records
+ * at once and refills at <code>recordsPerSecond</code>. Records finding their bucket empty are
+ * counted and dropped; at most once per summary interval the counts are reported as one
+ * "Suppressed N similar records" record per group, posted to the same logger at the same level.
+ * </p>
+ * <p>
+ * Buckets live in a fixed-size table, each guarded by its own lock, so threads logging different
+ * messages never contend, and a record whose bucket exists allocates nothing. The hash of a group
+ * picks a set of eight slots, and the group's bucket may be in any of them. A group
+ * finding its set full takes over the slot used least recently, reporting what the other group
+ * had suppressed at the next summary. The first record of a group is always let through. If the
+ * slot taken over was used within the time it takes to refill a whole burst, the new bucket
+ * starts with that one token only, and the takeover is counted in {@link #getEvictions()}; a
+ * count that keeps growing means more groups are active than the table can throttle.
+ * </p>
+ *
+ * @see JULLog4jEventConverter#setThrottle(JULRecordThrottle)
+ */
+public final class JULRecordThrottle {
+
+    /** Summary interval used unless another is given. */
+    public static final long DEFAULT_SUMMARY_INTERVAL = 10000;
+
+    static final String SUMMARY_MESSAGE = "Suppressed {0} similar records: {1}";
+
+    private static final int TABLE_SIZE = 4096;
+    private static final int WAYS = 8;
+    private static final int SET_MASK = TABLE_SIZE / WAYS - 1;
+
+    private static final int ACQUIRED = 1;
+    private static final int SUPPRESSED = 0;
+    private static final int EVICTED = -1;
+
+    private final double tokensPerNano;
+    private final long burstRefillNanos;
+    private final int burst;
+    private final long summaryIntervalNanos;
+    private final AtomicReferenceArray<Bucket> buckets = new AtomicReferenceArray<Bucket>(
+            TABLE_SIZE);
+    private final List<Bucket> evicted = new ArrayList<Bucket>();
+    private final AtomicLong nextSummary;
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param recordsPerSecond
+     *            rate at which each group of similar records may be logged
+     * @param burst
+     *            number of similar records let through before the rate applies
+     */
+    public JULRecordThrottle(double recordsPerSecond, int burst) {
+        this(recordsPerSecond, burst, DEFAULT_SUMMARY_INTERVAL);
+    }
+
+    /**
+     * @param recordsPerSecond
+     *            rate at which each group of similar records may be logged
+     * @param burst
+     *            number of similar records let through before the rate applies
+     * @param summaryInterval
+     *            minimum number of milliseconds between two reports of suppressed records
+     */
+    public JULRecordThrottle(double recordsPerSecond, int burst, long summaryInterval) {
+        if (recordsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException(
+                    "recordsPerSecond must be positive and burst at least 1");
+        }
+        this.tokensPerNano = recordsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.burstRefillNanos = (long) (burst / tokensPerNano);
+        this.summaryIntervalNanos = TimeUnit.MILLISECONDS.toNanos(summaryInterval);
+        this.nextSummary = new AtomicLong(System.nanoTime() + summaryIntervalNanos);
+    }
+
+    public double getRecordsPerSecond() {
+        return tokensPerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public long getSummaryInterval() {
+        return TimeUnit.NANOSECONDS.toMillis(summaryIntervalNanos);
+    }
+
+    /**
+     * @return number of times a group took over the bucket of another group that was still in
+     *         use
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Takes a token from the bucket of the record's group.
+     * 
+     * @param record
+     * @return true if the record may be logged, false if it is suppressed
+     */
+    boolean tryAcquire(LogRecord record) {
+        String loggerName = record.getLoggerName();
+        Level level = record.getLevel();
+        String message = record.getMessage();
+        int hash = hash(loggerName, level, message);
+        int set = (hash & SET_MASK) * WAYS;
+        long now = System.nanoTime();
+
+        for (;;) {
+            Bucket bucket = find(set, loggerName, level, message);
+            if (bucket == null) {
+                bucket = insert(set, loggerName, level, message, now);
+            }
+            if (bucket != null) {
+                int result = bucket.tryAcquire(now, tokensPerNano, burst);
+                if (result != EVICTED) {
+                    return result == ACQUIRED;
+                }
+            }
+        }
+    }
+
+    private Bucket find(int set, String loggerName, Level level, String message) {
+        for (int i = set; i < set + WAYS; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null && bucket.matches(loggerName, level, message)) {
+                return bucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Puts a new bucket in a free slot of the set, or in place of the bucket used least
+     * recently.
+     * 
+     * @return the new bucket, or null if another thread changed the slot first
+     */
+    private Bucket insert(int set, String loggerName, Level level, String message, long now) {
+        int index = -1;
+        Bucket victim = null;
+        for (int i = set; i < set + WAYS; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket == null) {
+                index = i;
+                victim = null;
+                break;
+            }
+            if (victim == null || bucket.lastUsed - victim.lastUsed < 0) {
+                index = i;
+                victim = bucket;
+            }
+        }
+        boolean active = victim != null && now - victim.lastUsed < burstRefillNanos;
+        Bucket replacement = new Bucket(loggerName, level, message, active ? 1 : burst, now);
+        if (!buckets.compareAndSet(index, victim, replacement)) {
+            return null;
+        }
+        if (active) {
+            evictions.incrementAndGet();
+        }
+        if (victim != null && victim.evict()) {
+            synchronized (evicted) {
+                evicted.add(victim);
+            }
+        }
+        return replacement;
+    }
+
+    /**
+     * @param force
+     *            true to report suppressed records even if the summary interval has not passed
+     * @return one summary record per group that suppressed records, if the summary interval has
+     *         passed and no other thread is reporting them; an empty list otherwise
+     */
+    List<LogRecord> takeSummaries(boolean force) {
+        long due = nextSummary.get();
+        long now = System.nanoTime();
+        if (!force && (now - due < 0 || !nextSummary.compareAndSet(due, now + summaryIntervalNanos))) {
+            return Collections.emptyList();
+        }
+        List<LogRecord> summaries = new ArrayList<LogRecord>();
+        synchronized (evicted) {
+            for (Bucket bucket : evicted) {
+                bucket.addSummary(summaries);
+            }
+            evicted.clear();
+        }
+        for (int i = 0; i < TABLE_SIZE; i++) {
+            Bucket bucket = buckets.get(i);
+            if (bucket != null) {
+                bucket.addSummary(summaries);
+            }
+        }
+        return summaries;
+    }
+
+    private static int hash(String loggerName, Level level, String message) {
+        int h = loggerName == null ? 0 : loggerName.hashCode();
+        h = 31 * h + level.intValue();
+        h = 31 * h + (message == null ? 0 : message.hashCode());
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean same(String a, String b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static final class Bucket {
+        final String loggerName;
+        final Level level;
+        final String message;
+
+        volatile long lastUsed;
+
+        private double tokens;
+        private long lastRefill;
+        private long suppressed;
+        private boolean evicted;
+
+        Bucket(String loggerName, Level level, String message, double tokens, long now) {
+            this.loggerName = loggerName;
+            this.level = level;
+            this.message = message;
+            this.tokens = tokens;
+            this.lastRefill = now;
+            this.lastUsed = now;
+        }
+
+        boolean matches(String loggerName, Level level, String message) {
+            return this.level.intValue() == level.intValue() && same(this.loggerName, loggerName)
+                    && same(this.message, message);
+        }
+
+        /**
+         * @return {@link #ACQUIRED}, {@link #SUPPRESSED}, or {@link #EVICTED} if the bucket was
+         *         replaced by another group's and the record must look for its bucket again
+         */
+        synchronized int tryAcquire(long now, double tokensPerNano, int burst) {
+            if (evicted) {
+                return EVICTED;
+            }
+            lastUsed = now;
+            long elapsed = now - lastRefill;
+            if (elapsed > 0) {
+                tokens = Math.min(burst, tokens + elapsed * tokensPerNano);
+                lastRefill = now;
+            }
+            if (tokens >= 1) {
+                tokens -= 1;
+                return ACQUIRED;
+            }
+            suppressed++;
+            return SUPPRESSED;
+        }
+
+        /**
+         * Stops counting records, so that nothing is suppressed once the bucket is out of the
+         * table without being reported.
+         * 
+         * @return true if the bucket suppressed records that are still to be reported
+         */
+        synchronized boolean evict() {
+            evicted = true;
+            return suppressed > 0;
+        }
+
+        synchronized void addSummary(List<LogRecord> summaries) {
+            if (suppressed == 0) {
+                return;
+            }
+            LogRecord summary = new LogRecord(level, SUMMARY_MESSAGE);
+            summary.setLoggerName(loggerName);
+            summary.setParameters(new Object[] { Long.valueOf(suppressed), message });
+            summary.setSourceClassName(null);
+            summary.setSourceMethodName(null);
+            summaries.add(summary);
+            suppressed = 0;
+        }
+    }
+}
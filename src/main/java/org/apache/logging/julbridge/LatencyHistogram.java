@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>
+ * Histogram of durations in nanoseconds with log-linear buckets, as HdrHistogram lays them out:
+ * each power of two is split into {@value #SUB_BUCKETS} buckets, so any value is reported within
+ * about 3% of what was recorded, from 1ns to about a minute, in a fixed 1024 counts.
+ * </p>
+ * <p>
+ * Every thread records into counts of its own, written with plain lazy sets since no other
+ * thread writes them, so recording takes no lock and no compare-and-set. Reading merges the
+ * counts of all threads; {@link #reset()} remembers the merged counts and later reads subtract
+ * them, so threads never see their counts change under them.
+ * </p>
+ * <p>
+ * The counts of a thread that has ended are added to counts kept for all ended threads and
+ * dropped, the next time a thread starts recording or the histogram is read, so a pool that keeps
+ * replacing its threads does not make the histogram grow.
+ * </p>
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKETS = bucketOf(MAX_VALUE) + 1;
+    private static final int SUM = BUCKETS;
+
+    private final List<Recorder> recorders = new CopyOnWriteArrayList<Recorder>();
+    private final ThreadLocal<AtomicLongArray> recorder = new ThreadLocal<AtomicLongArray>() {
+        protected AtomicLongArray initialValue() {
+            AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+            synchronized (LatencyHistogram.this) {
+                retireEndedThreads();
+                recorders.add(new Recorder(Thread.currentThread(), counts));
+            }
+            return counts;
+        }
+    };
+    /** Counts of the threads that have ended, guarded by this. */
+    private final long[] retired = new long[BUCKETS + 1];
+    private volatile long[] baseline = new long[BUCKETS + 1];
+
+    /**
+     * @param nanos
+     *            duration, clamped to the range of the histogram
+     */
+    void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        AtomicLongArray counts = recorder.get();
+        int bucket = bucketOf(value);
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+        counts.lazySet(SUM, counts.get(SUM) + value);
+    }
+
+    static int bucketOf(long value) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(value | 1);
+        if (magnitude <= SUB_BUCKET_BITS) {
+            return (int) value;
+        }
+        int shift = magnitude - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @return the highest value counted in the bucket
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) ((bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    /**
+     * Forgets what was recorded so far.
+     */
+    void reset() {
+        baseline = merge();
+    }
+
+    private synchronized long[] merge() {
+        retireEndedThreads();
+        long[] merged = retired.clone();
+        for (int i = 0; i < recorders.size(); i++) {
+            AtomicLongArray counts = recorders.get(i).counts;
+            for (int j = 0; j < merged.length; j++) {
+                merged[j] += counts.get(j);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Adds the counts of the threads that have ended to {@link #retired} and drops them. A thread
+     * seen as no longer alive has made all its writes visible.
+     */
+    private void retireEndedThreads() {
+        for (int i = 0; i < recorders.size(); i++) {
+            Recorder ended = recorders.get(i);
+            Thread owner = ended.owner.get();
+            if (owner == null || !owner.isAlive()) {
+                for (int j = 0; j < retired.length; j++) {
+                    retired[j] += ended.counts.get(j);
+                }
+                recorders.remove(ended);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * @return the number of threads whose counts are kept apart
+     */
+    int recorderCount() {
+        return recorders.size();
+    }
+
+    /**
+     * @return the durations recorded since the last reset
+     */
+    Snapshot snapshot() {
+        long[] counts = merge();
+        long[] base = baseline;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] -= base[i];
+        }
+        return new Snapshot(counts);
+    }
+
+    /**
+     * Counts of one thread, which is only referred to weakly so that it can be collected once it
+     * has ended.
+     */
+    private static final class Recorder {
+        final WeakReference<Thread> owner;
+        final AtomicLongArray counts;
+
+        Recorder(Thread owner, AtomicLongArray counts) {
+            this.owner = new WeakReference<Thread>(owner);
+            this.counts = counts;
+        }
+    }
+
+    /**
+     * Merged counts of all threads at one point in time.
+     */
+    static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+
+        Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                total += counts[i];
+            }
+            this.count = total;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        double getMean() {
+            return count == 0 ? 0 : (double) counts[SUM] / count;
+        }
+
+        /**
+         * @param percentile
+         *            between 0 and 100
+         * @return the value at or below which the given percentage of the durations were, or 0
+         *         if none were recorded
+         */
+        long getValueAtPercentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return highestValueOf(i);
+                }
+            }
+            return getMax();
+        }
+
+        long getMax() {
+            for (int i = BUCKETS - 1; i >= 0; i--) {
+                if (counts[i] > 0) {
+                    return highestValueOf(i);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggerRepository;
+
+/**
+ * <p>
+ * Maps JUL logger names to log4j {@link Logger}s without going through
+ * {@link LoggerRepository#getLogger(String)}, which synchronizes on the repository's table of
+ * loggers for every call. Lookups of names seen before are a lock-free map read.
+ * </p>
+ * <p>
+ * The cache is emptied whenever the repository reports a configuration change, which includes
+ * {@link LoggerRepository#resetConfiguration()} and {@link LoggerRepository#shutdown()} (a plain
+ * {@link org.apache.log4j.Hierarchy} reports them through the appenders they remove). A reset keeps
+ * the logger instances of the repository anyway, so an entry added while the cache is being
+ * cleared still resolves to the right logger.
+ * </p>
+ */
+final class LoggerCache implements RepositoryWatcher.Listener {
+
+    private final LoggerRepository repository;
+    private final ConcurrentMap<String, Logger> loggers = new ConcurrentHashMap<String, Logger>();
+    private volatile boolean watching;
+
+    LoggerCache(LoggerRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param name
+     *            non-null logger name
+     * @return the log4j logger of that name
+     */
+    Logger getLogger(String name) {
+        Logger logger = loggers.get(name);
+        if (logger == null) {
+            logger = repository.getLogger(name);
+            if (watching) {
+                loggers.put(name, logger);
+            }
+        }
+        return logger;
+    }
+
+    /**
+     * Starts caching, and clearing the cache on every configuration change of the repository.
+     */
+    void start() {
+        RepositoryWatcher.getInstance(repository).addListener(this);
+        watching = true;
+    }
+
+    /**
+     * Stops caching and forgets every cached logger.
+     */
+    void stop() {
+        watching = false;
+        RepositoryWatcher.getInstance(repository).removeListener(this);
+        loggers.clear();
+    }
+
+    public void levelChanged(Logger logger) {
+    }
+
+    public void appendersChanged(Category category) {
+        configurationChanged();
+    }
+
+    public void configurationChanged() {
+        loggers.clear();
+    }
+}
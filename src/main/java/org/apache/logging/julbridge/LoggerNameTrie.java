@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+/**
+ * <p>
+ * Immutable trie of Logger name prefixes, each with a value. A prefix matches the Logger of that
+ * name and all Loggers below it in the hierarchy, so <code>sun.net</code> matches
+ * <code>sun.net.www</code> but not <code>sun.netx</code>. Looking a name up walks its characters
+ * once, whatever the number of prefixes, and allocates nothing.
+ * </p>
+ * <p>
+ * Adding a prefix copies the path to it and returns a new trie, so readers never need a lock.
+ * </p>
+ *
+ * @param <V>
+ *            type of the values
+ */
+final class LoggerNameTrie<V> {
+
+    private static final LoggerNameTrie<Object> EMPTY = new LoggerNameTrie<Object>(
+            new Node<Object>(null, new char[0], Node.<Object> newNodes(0)), 0);
+
+    private final Node<V> root;
+    private final int size;
+
+    private LoggerNameTrie(Node<V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> LoggerNameTrie<V> empty() {
+        return (LoggerNameTrie<V>) EMPTY;
+    }
+
+    /**
+     * @param prefix
+     *            Logger name, "" matching every Logger
+     * @param value
+     * @return a trie that also maps the prefix to the value, replacing any value it had
+     */
+    LoggerNameTrie<V> with(String prefix, V value) {
+        if (value == null) {
+            throw new IllegalArgumentException("value cannot be null");
+        }
+        boolean[] added = new boolean[1];
+        Node<V> newRoot = with(root, prefix, 0, value, added);
+        return new LoggerNameTrie<V>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @param name
+     *            Logger name
+     * @return the value of the longest prefix matching the name, or null
+     */
+    V match(String name) {
+        Node<V> node = root;
+        V match = node.value;
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            node = node.child(name.charAt(i));
+            if (node == null) {
+                return match;
+            }
+            if (node.value != null && (i + 1 == length || name.charAt(i + 1) == '.')) {
+                match = node.value;
+            }
+        }
+        return match;
+    }
+
+    /**
+     * @return number of prefixes
+     */
+    int size() {
+        return size;
+    }
+
+    private static <V> Node<V> with(Node<V> node, String prefix, int index, V value,
+            boolean[] added) {
+        if (index == prefix.length()) {
+            added[0] = node.value == null;
+            return new Node<V>(value, node.keys, node.children);
+        }
+        char key = prefix.charAt(index);
+        int position = node.indexOf(key);
+        Node<V> child = position < 0 ? new Node<V>(null, new char[0], Node.<V> newNodes(0))
+                : node.children[position];
+        Node<V> newChild = with(child, prefix, index + 1, value, added);
+        char[] keys;
+        Node<V>[] children;
+        if (position < 0) {
+            keys = new char[node.keys.length + 1];
+            System.arraycopy(node.keys, 0, keys, 0, node.keys.length);
+            keys[node.keys.length] = key;
+            children = Node.newNodes(node.children.length + 1);
+            System.arraycopy(node.children, 0, children, 0, node.children.length);
+            children[node.children.length] = newChild;
+        } else {
+            keys = node.keys;
+            children = node.children.clone();
+            children[position] = newChild;
+        }
+        return new Node<V>(node.value, keys, children);
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final char[] keys;
+        final Node<V>[] children;
+
+        Node(V value, char[] keys, Node<V>[] children) {
+            this.value = value;
+            this.keys = keys;
+            this.children = children;
+        }
+
+        int indexOf(char key) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        Node<V> child(char key) {
+            int position = indexOf(key);
+            return position < 0 ? null : children[position];
+        }
+
+        @SuppressWarnings("unchecked")
+        static <V> Node<V>[] newNodes(int length) {
+            return new Node[length];
+        }
+    }
+}
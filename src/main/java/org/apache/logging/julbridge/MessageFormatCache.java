@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.text.MessageFormat;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>
+ * Bounded cache of parsed {@link MessageFormat}s keyed by pattern, so a pattern logged over and
+ * over is parsed once rather than on every record. <code>MessageFormat</code> is not thread safe,
+ * so every use formats with a clone of the cached instance, which is far cheaper than parsing.
+ * </p>
+ * <p>
+ * When the cache is full it is simply emptied, which keeps it bounded even when patterns are built
+ * dynamically, without the locking a least-recently-used policy needs.
+ * </p>
+ */
+final class MessageFormatCache {
+
+    static final int DEFAULT_MAX_SIZE = 512;
+
+    private final int maxSize;
+    private final ConcurrentMap<String, MessageFormat> formats = new ConcurrentHashMap<String, MessageFormat>();
+
+    MessageFormatCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Formats the parameters like {@link MessageFormat#format(String, Object[])} does.
+     *
+     * @param pattern
+     * @param parameters
+     * @return the formatted message
+     * @throws IllegalArgumentException
+     *             if the pattern is invalid
+     */
+    String format(String pattern, Object[] parameters) {
+        MessageFormat format = formats.get(pattern);
+        if (format == null) {
+            format = new MessageFormat(pattern);
+            if (formats.size() >= maxSize) {
+                formats.clear();
+            }
+            formats.put(pattern, format);
+        }
+        return ((MessageFormat) format.clone()).format(parameters);
+    }
+
+    int size() {
+        return formats.size();
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.logging.LogRecord;
+
+import org.apache.log4j.spi.LocationInfo;
+
+/**
+ * <p>
+ * {@link LocationInfo} whose contents are replaced for every record, so each thread needs only
+ * one. It is handed out by {@link JULLoggingEvent}s converted with
+ * {@link JULLog4jEventConverter#setReuseLocationInfo(boolean)}, and is only safe to use while
+ * appending, by appenders that do not keep the event or its location afterwards.
+ * </p>
+ * <p>
+ * {@link #fullInfo} is a public field rather than a getter, so it has to be built when the
+ * record changes. It is kept while consecutive records come from the same class and method, as
+ * they usually do, and costs nothing for them.
+ * </p>
+ */
+final class MutableLocationInfo extends LocationInfo {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final ThreadLocal<MutableLocationInfo> HOLDERS = new ThreadLocal<MutableLocationInfo>() {
+        protected MutableLocationInfo initialValue() {
+            return new MutableLocationInfo();
+        }
+    };
+
+    private transient String sourceClassName;
+    private transient String sourceMethodName;
+
+    private MutableLocationInfo() {
+        super(null, null);
+    }
+
+    /**
+     * @param record
+     * @return the location of the record, in the holder of the current thread
+     */
+    static LocationInfo of(LogRecord record) {
+        MutableLocationInfo holder = HOLDERS.get();
+        holder.reset(record.getSourceClassName(), record.getSourceMethodName());
+        return holder;
+    }
+
+    private void reset(String className, String methodName) {
+        if (fullInfo == null || !same(className, sourceClassName)
+                || !same(methodName, sourceMethodName)) {
+            sourceClassName = className;
+            sourceMethodName = methodName;
+            fullInfo = orNA(className) + "." + orNA(methodName) + "(" + NA + ":" + NA + ")";
+        }
+    }
+
+    private static boolean same(String a, String b) {
+        return a == b || (a != null && a.equals(b));
+    }
+
+    private static String orNA(String value) {
+        return value == null ? NA : value;
+    }
+
+    public String getClassName() {
+        return orNA(sourceClassName);
+    }
+
+    public String getMethodName() {
+        return orNA(sourceMethodName);
+    }
+
+    public String getFileName() {
+        return NA;
+    }
+
+    public String getLineNumber() {
+        return NA;
+    }
+}
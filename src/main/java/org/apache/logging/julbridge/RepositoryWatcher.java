@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.Category;
+import org.apache.log4j.Logger;
+import org.apache.log4j.component.spi.LoggerEventListener;
+import org.apache.log4j.component.spi.LoggerRepositoryEventListener;
+import org.apache.log4j.component.spi.LoggerRepositoryEx;
+import org.apache.log4j.spi.HierarchyEventListener;
+import org.apache.log4j.spi.LoggerRepository;
+
+/**
+ * <p>
+ * Single listener registered with a log4j {@link LoggerRepository} that forwards configuration
+ * changes to the bridge components that cache something derived from the configuration.
+ * </p>
+ * <p>
+ * A plain {@link org.apache.log4j.Hierarchy} only reports appenders being added to or removed from
+ * a category, which every configurator does, so these are reported as a change of that category.
+ * A {@link LoggerRepositoryEx} additionally reports level changes of individual loggers, resets
+ * and shutdowns.
+ * </p>
+ * <p>
+ * <code>LoggerRepository</code> offers no way to remove a {@link HierarchyEventListener}, so there
+ * is exactly one watcher per repository, and bridge components register and unregister with the
+ * watcher instead.
+ * </p>
+ * <p>
+ * Listeners are held weakly, so a component that is dropped without being stopped, such as a
+ * bridge handler that is never closed, does not stay registered for as long as the repository
+ * lives. Whoever registers a listener has to keep a reference to it.
+ * </p>
+ */
+final class RepositoryWatcher implements HierarchyEventListener, LoggerEventListener,
+        LoggerRepositoryEventListener {
+
+    /**
+     * Receives the configuration changes of a watched repository.
+     */
+    interface Listener {
+
+        /**
+         * The level of a single logger changed, and nothing else.
+         *
+         * @param logger
+         */
+        void levelChanged(Logger logger);
+
+        /**
+         * An appender was added to or removed from the category. Configurators set the level of
+         * a category before its appenders, so the level may have changed as well.
+         *
+         * @param category
+         */
+        void appendersChanged(Category category);
+
+        /**
+         * Anything about the configuration may have changed.
+         */
+        void configurationChanged();
+    }
+
+    private static final Map<LoggerRepository, RepositoryWatcher> WATCHERS = new WeakHashMap<LoggerRepository, RepositoryWatcher>();
+
+    private final CopyOnWriteArrayList<WeakReference<Listener>> listeners = new CopyOnWriteArrayList<WeakReference<Listener>>();
+
+    private RepositoryWatcher() {
+    }
+
+    /**
+     * Returns the watcher of the repository, registering one on first use.
+     *
+     * @param repository
+     * @return the watcher for <code>repository</code>
+     */
+    static synchronized RepositoryWatcher getInstance(LoggerRepository repository) {
+        RepositoryWatcher watcher = WATCHERS.get(repository);
+        if (watcher == null) {
+            watcher = new RepositoryWatcher();
+            if (repository instanceof LoggerRepositoryEx) {
+                LoggerRepositoryEx repositoryEx = (LoggerRepositoryEx) repository;
+                repositoryEx.addLoggerEventListener(watcher);
+                repositoryEx.addLoggerRepositoryEventListener(watcher);
+            } else {
+                repository.addHierarchyEventListener(watcher);
+            }
+            WATCHERS.put(repository, watcher);
+        }
+        return watcher;
+    }
+
+    public synchronized void addListener(Listener listener) {
+        if (find(listener) == null) {
+            listeners.add(new WeakReference<Listener>(listener));
+        }
+    }
+
+    public synchronized void removeListener(Listener listener) {
+        WeakReference<Listener> reference = find(listener);
+        if (reference != null) {
+            listeners.remove(reference);
+        }
+    }
+
+    /**
+     * @param listener
+     * @return the reference to the listener, or null if it is not registered
+     */
+    private WeakReference<Listener> find(Listener listener) {
+        WeakReference<Listener> found = null;
+        for (WeakReference<Listener> reference : listeners) {
+            Listener registered = reference.get();
+            if (registered == null) {
+                listeners.remove(reference);
+            } else if (registered == listener) {
+                found = reference;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return number of listeners that have not been collected
+     */
+    synchronized int getListenerCount() {
+        find(null);
+        return listeners.size();
+    }
+
+    private void fireLevelChanged(Logger logger) {
+        for (WeakReference<Listener> reference : listeners) {
+            Listener listener = reference.get();
+            if (listener != null) {
+                listener.levelChanged(logger);
+            }
+        }
+    }
+
+    private void fireAppendersChanged(Category category) {
+        for (WeakReference<Listener> reference : listeners) {
+            Listener listener = reference.get();
+            if (listener != null) {
+                listener.appendersChanged(category);
+            }
+        }
+    }
+
+    private void fireConfigurationChanged() {
+        for (WeakReference<Listener> reference : listeners) {
+            Listener listener = reference.get();
+            if (listener != null) {
+                listener.configurationChanged();
+            }
+        }
+    }
+
+    public void addAppenderEvent(Category cat, Appender appender) {
+        fireAppendersChanged(cat);
+    }
+
+    public void removeAppenderEvent(Category cat, Appender appender) {
+        fireAppendersChanged(cat);
+    }
+
+    public void appenderAddedEvent(Logger logger, Appender appender) {
+        fireAppendersChanged(logger);
+    }
+
+    public void appenderRemovedEvent(Logger logger, Appender appender) {
+        fireAppendersChanged(logger);
+    }
+
+    public void levelChangedEvent(Logger logger) {
+        fireLevelChanged(logger);
+    }
+
+    public void configurationResetEvent(LoggerRepository repository) {
+        fireConfigurationChanged();
+    }
+
+    public void configurationChangedEvent(LoggerRepository repository) {
+        fireConfigurationChanged();
+    }
+
+    public void shutdownEvent(LoggerRepository repository) {
+        fireConfigurationChanged();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ * Bounded lock-free queue backed by an array, after Dmitry Vyukov's bounded MPMC queue. Every slot
+ * carries a sequence number telling producers and consumers whether it is free for the lap they
+ * are on, so an {@link #offer(Object)} or {@link #poll()} is a single CAS on the shared position
+ * plus plain reads and writes of the slot.
+ * </p>
+ * <p>
+ * Any number of threads may offer and poll concurrently. The bridge uses it with one consuming
+ * thread, but producers may also poll to discard the oldest element when the buffer is full.
+ * </p>
+ *
+ * @param <E>
+ *            element type
+ */
+final class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerPosition = new AtomicLong();
+    private final AtomicLong consumerPosition = new AtomicLong();
+
+    /**
+     * @param capacity
+     *            requested capacity, rounded up to the next power of two
+     */
+    RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) {
+            size <<= 1;
+        }
+        mask = size - 1;
+        elements = new AtomicReferenceArray<E>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Adds an element if there is room.
+     *
+     * @param element
+     *            non-null element
+     * @return false if the buffer is full
+     */
+    boolean offer(E element) {
+        long position = producerPosition.get();
+        int index;
+        for (;;) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (producerPosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = producerPosition.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = producerPosition.get();
+            }
+        }
+        elements.lazySet(index, element);
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    /**
+     * Removes the oldest element.
+     *
+     * @return the oldest element, or null if the buffer is empty
+     */
+    E poll() {
+        long position = consumerPosition.get();
+        int index;
+        for (;;) {
+            index = (int) position & mask;
+            long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (consumerPosition.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = consumerPosition.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = consumerPosition.get();
+            }
+        }
+        E element = elements.get(index);
+        elements.lazySet(index, null);
+        sequences.set(index, position + mask + 1);
+        return element;
+    }
+
+    /**
+     * @return an estimate of the number of elements, exact when no thread is offering or polling
+     */
+    int size() {
+        long size = producerPosition.get() - consumerPosition.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more contributor license
+ * agreements. See the NOTICE file distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License. You may obtain a
+ * copy of the License at http://www.apache.org/licenses/LICENSE-2.0 Unless required by applicable
+ * law or agreed to in writing, software distributed under the License is distributed on an "AS IS"
+ * BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License
+ * for the specific language governing permissions and limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.LogRecord;
+
+/**
+ * <p>
+ * Resolves the thread id of a {@link LogRecord} to the name of the thread. A LogRecord only carries
+ * the id, but the record is almost always converted on the thread that logged it, whose name is at
+ * hand. Every name resolved that way is also remembered in a small direct-mapped table indexed by
+ * id, which is what a thread converting records for others (e.g. the thread of an
+ * {@link AsyncJULBridgeHandler}) reads.
+ * </p>
+ * <p>
+ * The table has a fixed size and each slot holds one immutable id/name pair, so it is read and
+ * written without locks and never grows; a thread whose slot was taken over by another thread
+ * falls back to the numeric id, which is what the bridge used to report for every thread.
+ * </p>
+ */
+final class ThreadNames {
+
+    private static final int TABLE_SIZE = 1024;
+    private static final int MASK = TABLE_SIZE - 1;
+
+    private static final AtomicReferenceArray<Entry> NAMES = new AtomicReferenceArray<Entry>(
+            TABLE_SIZE);
+
+    private ThreadNames() {
+    }
+
+    /**
+     * @param threadId
+     *            thread id of a {@link LogRecord}
+     * @return the name of that thread, or the id as a String if it is unknown
+     */
+    static String getName(int threadId) {
+        Thread current = Thread.currentThread();
+        if ((int) current.getId() == threadId) {
+            String name = current.getName();
+            remember(threadId, name);
+            return name;
+        }
+        Entry entry = NAMES.get(threadId & MASK);
+        if (entry != null && entry.threadId == threadId) {
+            return entry.name;
+        }
+        return String.valueOf(threadId);
+    }
+
+    /**
+     * @param record
+     * @return true if the record was logged by the current thread
+     */
+    static boolean isCurrentThread(LogRecord record) {
+        return (int) Thread.currentThread().getId() == record.getThreadID();
+    }
+
+    /**
+     * Remembers the name of the current thread, if it logged the record, so another thread can
+     * resolve it later.
+     *
+     * @param record
+     */
+    static void remember(LogRecord record) {
+        getName(record.getThreadID());
+    }
+
+    private static void remember(int threadId, String name) {
+        int index = threadId & MASK;
+        Entry entry = NAMES.get(index);
+        if (entry == null || entry.threadId != threadId || !entry.name.equals(name)) {
+            NAMES.lazySet(index, new Entry(threadId, name));
+        }
+    }
+
+    private static final class Entry {
+        final int threadId;
+        final String name;
+
+        Entry(int threadId, String name) {
+            this.threadId = threadId;
+            this.name = name;
+        }
+    }
+}
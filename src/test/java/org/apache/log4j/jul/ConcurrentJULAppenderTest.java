@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.log4j.jul;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.varia.LevelMatchFilter;
+import org.apache.log4j.varia.DenyAllFilter;
+import org.apache.logging.julbridge.JULLog4jBridge;
+
+public class ConcurrentJULAppenderTest extends TestCase {
+
+    private static final int THREADS = 8;
+    private static final int MESSAGES_PER_THREAD = 2000;
+
+    private java.util.logging.Logger julLogger;
+    private Logger log;
+    private final Set messages = Collections.synchronizedSet(new HashSet());
+    private final Handler handler = new Handler() {
+        public void publish(LogRecord record) {
+            messages.add(record.getMessage());
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws SecurityException {
+        }
+    };
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        JULLog4jBridge.repatriate();
+        julLogger = java.util.logging.Logger.getLogger(ConcurrentJULAppenderTest.class.getName());
+        julLogger.setLevel(java.util.logging.Level.ALL);
+        julLogger.setUseParentHandlers(false);
+        julLogger.addHandler(handler);
+        log = Logger.getLogger(ConcurrentJULAppenderTest.class);
+        log.setLevel(Level.ALL);
+    }
+
+    protected void tearDown() throws Exception {
+        julLogger.removeHandler(handler);
+        julLogger.setUseParentHandlers(true);
+        LogManager.resetConfiguration();
+    }
+
+    public void testConcurrentAppendsAreFormattedIndependently() throws Exception {
+        ConcurrentJULAppender appender = new ConcurrentJULAppender(new PatternLayout("%t:%m"));
+        appender.activateOptions();
+        log.addAppender(appender);
+
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            threads[t] = new Thread("worker" + t) {
+                public void run() {
+                    for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                        log.info(getName() + "-" + i);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < THREADS; t++) {
+            threads[t].join();
+        }
+
+        assertEquals(THREADS * MESSAGES_PER_THREAD, messages.size());
+        for (int t = 0; t < THREADS; t++) {
+            for (int i = 0; i < MESSAGES_PER_THREAD; i++) {
+                assertTrue(messages.contains("worker" + t + ":worker" + t + "-" + i));
+            }
+        }
+    }
+
+    public void testThresholdAndFiltersAreApplied() {
+        ConcurrentJULAppender appender = new ConcurrentJULAppender(new PatternLayout("%m"));
+        appender.setThreshold(Level.INFO);
+        LevelMatchFilter acceptWarn = new LevelMatchFilter();
+        acceptWarn.setLevelToMatch("WARN");
+        appender.addFilter(acceptWarn);
+        appender.addFilter(new DenyAllFilter());
+        appender.activateOptions();
+        log.addAppender(appender);
+
+        log.debug("below threshold");
+        log.info("denied");
+        log.warn("accepted");
+
+        assertEquals(Collections.singleton("accepted"), messages);
+    }
+
+    public void testLayoutChangesArePickedUp() {
+        PatternLayout layout = new PatternLayout("a:%m");
+        ConcurrentJULAppender appender = new ConcurrentJULAppender(layout);
+        appender.activateOptions();
+        log.addAppender(appender);
+
+        log.info("1");
+        layout.setConversionPattern("b:%m");
+        log.info("2");
+
+        assertTrue(messages.contains("a:1"));
+        assertTrue(messages.contains("b:2"));
+    }
+}
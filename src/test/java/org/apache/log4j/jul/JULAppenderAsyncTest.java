@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.log4j.jul;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.NDC;
+import org.apache.log4j.PatternLayout;
+import org.apache.logging.julbridge.JULLog4jBridge;
+
+public class JULAppenderAsyncTest extends TestCase {
+
+    private java.util.logging.Logger julLogger;
+    private Logger log;
+    private CollectingHandler handler;
+    private JULAppender appender;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        JULLog4jBridge.repatriate();
+        julLogger = java.util.logging.Logger.getLogger(JULAppenderAsyncTest.class.getName());
+        julLogger.setLevel(java.util.logging.Level.ALL);
+        julLogger.setUseParentHandlers(false);
+        handler = new CollectingHandler();
+        julLogger.addHandler(handler);
+
+        log = Logger.getLogger(JULAppenderAsyncTest.class);
+        log.setLevel(Level.ALL);
+        appender = new JULAppender(new PatternLayout("%X{user} %x [%t] %m"));
+        appender.setName("async");
+        appender.setAsync(true);
+    }
+
+    protected void tearDown() throws Exception {
+        handler.release.countDown();
+        julLogger.removeHandler(handler);
+        julLogger.setUseParentHandlers(true);
+        LogManager.resetConfiguration();
+        JULLog4jBridge.repatriate();
+    }
+
+    public void testCloseDrainsQueuedEvents() {
+        appender.activateOptions();
+        log.addAppender(appender);
+
+        for (int i = 0; i < 50; i++) {
+            log.info("message" + i);
+        }
+        appender.close();
+
+        assertEquals(50, handler.records.size());
+        for (int i = 0; i < 50; i++) {
+            assertTrue(((LogRecord) handler.records.get(i)).getMessage().endsWith("message" + i));
+        }
+    }
+
+    public void testThreadContextIsCapturedWhenAppending() {
+        appender.activateOptions();
+        log.addAppender(appender);
+
+        MDC.put("user", "alice");
+        NDC.push("request");
+        try {
+            log.warn("hello");
+        } finally {
+            NDC.remove();
+            MDC.remove("user");
+        }
+        appender.close();
+
+        LogRecord record = (LogRecord) handler.records.get(0);
+        assertEquals("alice request [" + Thread.currentThread().getName() + "] hello", record
+                .getMessage());
+        assertEquals(java.util.logging.Level.WARNING, record.getLevel());
+    }
+
+    public void testNonBlockingDiscardsWhenFull() throws Exception {
+        appender.setBufferSize(1);
+        appender.setBlocking(false);
+        appender.activateOptions();
+        log.addAppender(appender);
+        handler.blockFirst = true;
+
+        log.info("first");
+        handler.entered.await();
+        log.info("queued");
+        log.info("discarded1");
+        log.info("discarded2");
+        assertEquals(2, appender.getDiscardedCount());
+
+        handler.release.countDown();
+        appender.close();
+        assertEquals(2, handler.records.size());
+        assertTrue(((LogRecord) handler.records.get(1)).getMessage().endsWith("queued"));
+    }
+
+    public void testReactivationWhileBlockedLosesNothing() throws Exception {
+        appender.setBufferSize(1);
+        appender.activateOptions();
+        log.addAppender(appender);
+        handler.blockFirst = true;
+
+        log.info("first");
+        handler.entered.await();
+        log.info("queued");
+        Thread blocked = new Thread() {
+            public void run() {
+                log.info("blocked");
+            }
+        };
+        blocked.start();
+        waitUntilWaiting(blocked);
+        Thread reactivating = new Thread() {
+            public void run() {
+                appender.activateOptions();
+            }
+        };
+        reactivating.start();
+        waitUntilWaiting(reactivating);
+
+        handler.release.countDown();
+        blocked.join(10000);
+        reactivating.join(10000);
+        assertFalse(blocked.isAlive());
+        assertFalse(reactivating.isAlive());
+        log.info("after");
+        appender.close();
+
+        assertEquals(4, handler.records.size());
+        assertTrue(((LogRecord) handler.records.get(3)).getMessage().endsWith("after"));
+    }
+
+    private static void waitUntilWaiting(Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING
+                && thread.getState() != Thread.State.TIMED_WAITING
+                && thread.getState() != Thread.State.BLOCKED) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static class CollectingHandler extends Handler {
+        final List records = new CopyOnWriteArrayList();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        volatile boolean blockFirst;
+
+        public void publish(LogRecord record) {
+            records.add(record);
+            if (blockFirst) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        public void flush() {
+        }
+
+        public void close() throws SecurityException {
+        }
+    }
+}
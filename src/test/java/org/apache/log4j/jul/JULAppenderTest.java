@@ -18,11 +18,16 @@
 package org.apache.log4j.jul;
 
 
+import java.lang.management.ManagementFactory;
+
+import javax.management.ObjectName;
+
 import junit.framework.TestCase;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.apache.logging.julbridge.JULBridgeMetrics;
 import org.apache.logging.julbridge.JULLog4jBridge;
 
 /** JulAppender test case
@@ -110,4 +115,53 @@ public class JULAppenderTest extends TestCase {
         log.fatal(message);
         assertTrue(testHandler.activated() && testHandler.passed());
     }
+
+    public void testResolvedJULLoggersSurviveResetAndGC() throws Exception {
+        String name = JULAppenderTest.class.getName() + ".cached";
+        Logger child = Logger.getLogger(name);
+        child.info("resolves the JUL logger");
+
+        java.util.logging.LogManager.getLogManager().reset();
+        java.util.logging.Logger.getLogger(name).setLevel(java.util.logging.Level.SEVERE);
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals("Level set on the JUL logger was lost", java.util.logging.Level.SEVERE,
+                java.util.logging.Logger.getLogger(name).getLevel());
+
+        AssertionHandler childHandler = new AssertionHandler();
+        java.util.logging.Logger.getLogger(name).addHandler(childHandler);
+        child.fatal("after reset");
+        assertTrue(childHandler.activated());
+    }
+    public void testMetrics() throws Exception {
+        JULAppender appender = new JULAppender();
+        appender.setName("metered");
+        appender.activateOptions();
+        ObjectName name = new ObjectName(JULBridgeMetrics.DOMAIN
+                + ":type=JULAppender,name=\"metered\"");
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+
+        Logger metered = Logger.getLogger("metered.logger");
+        metered.setAdditivity(false);
+        metered.addAppender(appender);
+        metered.setLevel(Level.ALL);
+        java.util.logging.Logger.getLogger("metered.logger").setLevel(
+                java.util.logging.Level.INFO);
+        try {
+            metered.info("delivered");
+            metered.debug("rejected");
+            JULBridgeMetrics metrics = appender.getMetrics();
+            assertEquals(2, metrics.getReceivedCount());
+            assertEquals(1, metrics.getRejectedByLevelCount());
+            assertEquals(1, metrics.getDeliveredCount());
+            assertEquals(2, metrics.getCountsByNamespace().get("metered").getReceived());
+            assertEquals(-1, metrics.getQueueDepth());
+        } finally {
+            java.util.logging.Logger.getLogger("metered.logger").setLevel(null);
+            appender.close();
+        }
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+    }
 }
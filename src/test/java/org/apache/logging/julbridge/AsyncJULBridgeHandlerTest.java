@@ -0,0 +1,341 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class AsyncJULBridgeHandlerTest extends TestCase {
+
+    private static final String LOGGER_NAME = "foo.beep";
+    private static final String OTHER_LOGGER_NAME = LOGGER_NAME + ".boop";
+
+    private MockAppender mockAppender;
+    private AsyncJULBridgeHandler handler;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+    }
+
+    protected void tearDown() throws Exception {
+        if (handler != null) {
+            handler.close();
+        }
+        LogManager.resetConfiguration();
+    }
+
+    public void testRecordsAreDeliveredInOrderOnFlush() {
+        handler = newHandler(16, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 100; i++) {
+            handler.publish(newRecord(Level.INFO, "message" + i));
+        }
+        handler.flush();
+
+        assertEquals(100, mockAppender.observedLoggingEvents.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("message" + i, ((LoggingEvent) mockAppender.observedLoggingEvents.get(i))
+                    .getMessage());
+        }
+        assertEquals(0, handler.getDiscardedCount());
+    }
+
+    public void testCallerIsInferredOnPublishingThread() {
+        handler = newHandler(16, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        java.util.logging.Logger julLogger = java.util.logging.Logger.getLogger(LOGGER_NAME);
+        julLogger.setUseParentHandlers(false);
+        julLogger.addHandler(handler);
+        try {
+            julLogger.info("located");
+        } finally {
+            julLogger.removeHandler(handler);
+            julLogger.setUseParentHandlers(true);
+        }
+        handler.flush();
+
+        LoggingEvent event = (LoggingEvent) mockAppender.observedLoggingEvents.get(0);
+        assertEquals(getClass().getName(), event.getLocationInformation().getClassName());
+    }
+
+    public void testDisabledRecordsAreNotQueued() {
+        Logger.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        handler = newHandler(16, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        handler.publish(newRecord(Level.INFO, "disabled"));
+        handler.flush();
+
+        assertEquals(0, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testDropOldest() throws Exception {
+        BlockingAppender blocker = new BlockingAppender();
+        Logger.getRootLogger().addAppender(blocker);
+        handler = newHandler(4, AsyncJULBridgeHandler.OverflowPolicy.DROP_OLDEST);
+
+        handler.publish(newRecord(Level.INFO, "first"));
+        blocker.entered.await();
+        for (int i = 0; i < 10; i++) {
+            handler.publish(newRecord(Level.INFO, "message" + i));
+        }
+        assertEquals(4, handler.getQueueSize());
+        assertEquals(4, handler.getMetrics().getQueueDepth());
+        assertEquals(6, handler.getDiscardedCount());
+
+        blocker.release.countDown();
+        handler.flush();
+        assertEquals(5, mockAppender.observedLoggingEvents.size());
+        assertEquals(11, handler.getMetrics().getReceivedCount());
+        assertEquals(5, handler.getMetrics().getDeliveredCount());
+        assertEquals("message6", ((LoggingEvent) mockAppender.observedLoggingEvents.get(1))
+                .getMessage());
+    }
+
+    public void testDropBelowLevel() throws Exception {
+        final BlockingAppender blocker = new BlockingAppender();
+        Logger.getRootLogger().addAppender(blocker);
+        handler = newHandler(2, AsyncJULBridgeHandler.OverflowPolicy.DROP_BELOW_LEVEL);
+
+        handler.publish(newRecord(Level.INFO, "first"));
+        blocker.entered.await();
+        handler.publish(newRecord(Level.INFO, "queued1"));
+        handler.publish(newRecord(Level.INFO, "queued2"));
+        handler.publish(newRecord(Level.INFO, "dropped"));
+        assertEquals(1, handler.getDiscardedCount());
+
+        Thread releaser = new Thread() {
+            public void run() {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                blocker.release.countDown();
+            }
+        };
+        releaser.start();
+        handler.publish(newRecord(Level.SEVERE, "waited"));
+        handler.flush();
+
+        assertEquals(4, mockAppender.observedLoggingEvents.size());
+        assertEquals("waited", ((LoggingEvent) mockAppender.observedLoggingEvents.get(3))
+                .getMessage());
+        assertEquals(1, handler.getDiscardedCount());
+    }
+
+    public void testCloseDrainsBuffer() throws Exception {
+        BlockingAppender blocker = new BlockingAppender();
+        Logger.getRootLogger().addAppender(blocker);
+        handler = newHandler(16, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+
+        handler.publish(newRecord(Level.INFO, "first"));
+        blocker.entered.await();
+        for (int i = 0; i < 10; i++) {
+            handler.publish(newRecord(Level.INFO, "message" + i));
+        }
+        blocker.release.countDown();
+        handler.close();
+
+        assertEquals(11, mockAppender.observedLoggingEvents.size());
+        assertEquals(0, handler.getQueueSize());
+
+        handler.publish(newRecord(Level.INFO, "after close"));
+        assertEquals(12, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testQueuedRecordsAreDeliveredInBatches() throws Exception {
+        BlockingAppender blocker = new BlockingAppender();
+        Logger.getRootLogger().addAppender(blocker);
+        MockAppender childAppender = new MockAppender();
+        Logger.getLogger(OTHER_LOGGER_NAME).addAppender(childAppender);
+        handler = newHandler(64, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        handler.setBatchSize(8);
+
+        handler.publish(newRecord(Level.INFO, "first"));
+        blocker.entered.await();
+        for (int i = 0; i < 10; i++) {
+            LogRecord record = newRecord(Level.INFO, "message" + i);
+            if (i % 2 == 1) {
+                record.setLoggerName(OTHER_LOGGER_NAME);
+            }
+            handler.publish(record);
+        }
+        blocker.release.countDown();
+        handler.flush();
+
+        assertEquals(11, mockAppender.observedLoggingEvents.size());
+        assertEquals(5, childAppender.observedLoggingEvents.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("message" + (i * 2 + 1), ((LoggingEvent) childAppender.observedLoggingEvents
+                    .get(i)).getMessage());
+        }
+        assertEquals(3, handler.getBatchCount());
+        assertEquals(8, handler.getMaxBatchSize());
+        assertEquals(11.0 / 3, handler.getAverageBatchSize(), 0.001);
+        assertTrue(handler.getAverageDrainLatency() > 0);
+    }
+
+    public void testRecordQueuedWhileClosingIsPosted() {
+        handler = newHandler(16, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        LogRecord record = new LogRecord(Level.INFO, "closed while queuing") {
+            private boolean closing;
+
+            public String getSourceClassName() {
+                if (!closing) {
+                    closing = true;
+                    handler.close();
+                }
+                return super.getSourceClassName();
+            }
+        };
+        record.setLoggerName(LOGGER_NAME);
+        handler.publish(record);
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals(0, handler.getQueueSize());
+    }
+
+    public void testPublishDoesNotWaitForDeadDispatcher() {
+        Logger.getRootLogger().addAppender(new MockAppender() {
+            private boolean thrown;
+
+            public void doAppend(LoggingEvent event) {
+                if (!thrown) {
+                    thrown = true;
+                    throw new DispatcherDeath();
+                }
+            }
+        });
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            public void uncaughtException(Thread t, Throwable e) {
+            }
+        });
+        try {
+            handler = newHandler(2, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+            handler.publish(newRecord(Level.INFO, "fatal"));
+            handler.flush();
+            for (int i = 0; i < 5; i++) {
+                handler.publish(newRecord(Level.INFO, "message" + i));
+            }
+        } finally {
+            Thread.setDefaultUncaughtExceptionHandler(previous);
+        }
+        assertTrue(mockAppender.observedLoggingEvents.size() >= 4);
+
+        handler.close();
+        assertEquals(6, mockAppender.observedLoggingEvents.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("message" + i, ((LoggingEvent) mockAppender.observedLoggingEvents
+                    .get(i + 1)).getMessage());
+        }
+    }
+
+    public void testBatchesRespectAdditivity() {
+        Logger other = Logger.getLogger(OTHER_LOGGER_NAME);
+        MockAppender childAppender = new MockAppender();
+        other.addAppender(childAppender);
+        other.setAdditivity(false);
+
+        EventBatch batch = new EventBatch();
+        JULBridgeHandler bridge = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                new JULLog4jEventConverter(LogManager.getLoggerRepository()));
+        LogRecord record = newRecord(Level.INFO, "not additive");
+        record.setLoggerName(OTHER_LOGGER_NAME);
+        bridge.addTo(batch, record);
+        bridge.addTo(batch, newRecord(Level.INFO, "additive"));
+        assertEquals(2, batch.size());
+        bridge.deliver(batch);
+
+        assertEquals(0, batch.size());
+        assertEquals(1, childAppender.observedLoggingEvents.size());
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals("additive", ((LoggingEvent) mockAppender.observedLoggingEvents.get(0))
+                .getMessage());
+    }
+
+    public void testBatchesKeepOrderAcrossCategories() {
+        EventBatch batch = new EventBatch();
+        JULBridgeHandler bridge = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                new JULLog4jEventConverter(LogManager.getLoggerRepository()));
+        String[] loggerNames = { LOGGER_NAME, OTHER_LOGGER_NAME, LOGGER_NAME, LOGGER_NAME };
+        for (int i = 0; i < loggerNames.length; i++) {
+            LogRecord record = newRecord(Level.INFO, "message " + i);
+            record.setLoggerName(loggerNames[i]);
+            bridge.addTo(batch, record);
+        }
+        bridge.deliver(batch);
+
+        assertEquals(4, mockAppender.observedLoggingEvents.size());
+        for (int i = 0; i < loggerNames.length; i++) {
+            assertEquals("message " + i, ((LoggingEvent) mockAppender.observedLoggingEvents
+                    .get(i)).getMessage());
+        }
+    }
+
+    public void testAssimilateWithAsyncHandler() {
+        handler = newHandler(16, AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, false, handler);
+        try {
+            java.util.logging.Logger.getLogger(LOGGER_NAME).info("bridged");
+            handler.flush();
+            assertEquals(1, mockAppender.observedLoggingEvents.size());
+        } finally {
+            JULLog4jBridge.repatriate();
+        }
+    }
+
+    private AsyncJULBridgeHandler newHandler(int bufferSize,
+            AsyncJULBridgeHandler.OverflowPolicy policy) {
+        return new AsyncJULBridgeHandler(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, bufferSize, policy);
+    }
+
+    private static LogRecord newRecord(Level level, String message) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName(LOGGER_NAME);
+        return record;
+    }
+
+    private static class DispatcherDeath extends Error {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Holds up the dispatching thread on the first event until released.
+     */
+    private static class BlockingAppender extends MockAppender {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        public void doAppend(LoggingEvent event) {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Level;
+
+/**
+ * Checks that the table driven {@link JULLog4jEventConverter#DEFAULT_LEVEL_CONVERTER} maps every
+ * level exactly like the original chain of <code>equals</code> comparisons.
+ */
+public class DefaultLevelConverterTest extends TestCase {
+
+    private static final int[] EXTREME_VALUES = { Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1,
+            Integer.MAX_VALUE - 1, Integer.MAX_VALUE };
+
+    private final JULLevelConverter converter = JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER;
+
+    public void testStandardJuliLevels() {
+        assertEquals(Level.ALL, converter.convertJuliLevel(java.util.logging.Level.ALL));
+        assertEquals(Level.TRACE, converter.convertJuliLevel(java.util.logging.Level.FINEST));
+        assertEquals(Level.DEBUG, converter.convertJuliLevel(java.util.logging.Level.FINER));
+        assertEquals(Level.DEBUG, converter.convertJuliLevel(java.util.logging.Level.FINE));
+        assertEquals(Level.DEBUG, converter.convertJuliLevel(java.util.logging.Level.CONFIG));
+        assertEquals(Level.INFO, converter.convertJuliLevel(java.util.logging.Level.INFO));
+        assertEquals(Level.WARN, converter.convertJuliLevel(java.util.logging.Level.WARNING));
+        assertEquals(Level.ERROR, converter.convertJuliLevel(java.util.logging.Level.SEVERE));
+        assertEquals(Level.OFF, converter.convertJuliLevel(java.util.logging.Level.OFF));
+    }
+
+    public void testStandardLog4jLevels() {
+        assertEquals(java.util.logging.Level.ALL, converter.convertLog4jLevel(Level.ALL));
+        assertEquals(java.util.logging.Level.FINEST, converter.convertLog4jLevel(Level.TRACE));
+        assertEquals(java.util.logging.Level.FINER, converter.convertLog4jLevel(Level.DEBUG));
+        assertEquals(java.util.logging.Level.INFO, converter.convertLog4jLevel(Level.INFO));
+        assertEquals(java.util.logging.Level.WARNING, converter.convertLog4jLevel(Level.WARN));
+        assertEquals(java.util.logging.Level.SEVERE, converter.convertLog4jLevel(Level.ERROR));
+        assertEquals(java.util.logging.Level.SEVERE, converter.convertLog4jLevel(Level.FATAL));
+        assertEquals(java.util.logging.Level.OFF, converter.convertLog4jLevel(Level.OFF));
+    }
+
+    public void testCustomJuliLevelsMatchEqualsChain() {
+        for (int value = -100; value <= 1200; value++) {
+            assertJuliLevelMatches(value);
+        }
+        for (int i = 0; i < EXTREME_VALUES.length; i++) {
+            assertJuliLevelMatches(EXTREME_VALUES[i]);
+        }
+    }
+
+    public void testCustomLog4jLevelsMatchEqualsChain() {
+        for (int value = -1000; value <= 60000; value++) {
+            assertLog4jLevelMatches(value);
+        }
+        for (int i = 0; i < EXTREME_VALUES.length; i++) {
+            assertLog4jLevelMatches(EXTREME_VALUES[i]);
+        }
+    }
+
+    private void assertJuliLevelMatches(int value) {
+        java.util.logging.Level level = new CustomJuliLevel(value);
+        assertSame("JUL level " + value, convertJuliLevelWithEquals(level), converter
+                .convertJuliLevel(level));
+    }
+
+    private void assertLog4jLevelMatches(int value) {
+        Level level = new CustomLog4jLevel(value);
+        assertSame("log4j level " + value, convertLog4jLevelWithEquals(level), converter
+                .convertLog4jLevel(level));
+    }
+
+    /**
+     * The mapping as originally implemented by the default converter.
+     */
+    private static Level convertJuliLevelWithEquals(java.util.logging.Level juliLevel) {
+        if (juliLevel.equals(java.util.logging.Level.FINEST)) {
+            return Level.TRACE;
+        } else if (juliLevel.equals(java.util.logging.Level.FINER)) {
+            return Level.DEBUG;
+        } else if (juliLevel.equals(java.util.logging.Level.FINE)) {
+            return Level.DEBUG;
+        } else if (juliLevel.equals(java.util.logging.Level.INFO)) {
+            return Level.INFO;
+        } else if (juliLevel.equals(java.util.logging.Level.WARNING)) {
+            return Level.WARN;
+        } else if (juliLevel.equals(java.util.logging.Level.SEVERE)) {
+            return Level.ERROR;
+        } else if (juliLevel.equals(java.util.logging.Level.ALL)) {
+            return Level.ALL;
+        } else if (juliLevel.equals(java.util.logging.Level.OFF)) {
+            return Level.OFF;
+        }
+        return Level.DEBUG;
+    }
+
+    /**
+     * The mapping as originally implemented by the default converter.
+     */
+    private static java.util.logging.Level convertLog4jLevelWithEquals(Level log4jLevel) {
+        if (log4jLevel.equals(Level.TRACE)) {
+            return java.util.logging.Level.FINEST;
+        } else if (log4jLevel.equals(Level.DEBUG)) {
+            return java.util.logging.Level.FINER;
+        } else if (log4jLevel.equals(Level.INFO)) {
+            return java.util.logging.Level.INFO;
+        } else if (log4jLevel.equals(Level.WARN)) {
+            return java.util.logging.Level.WARNING;
+        } else if (log4jLevel.equals(Level.ERROR)) {
+            return java.util.logging.Level.SEVERE;
+        } else if (log4jLevel.equals(Level.FATAL)) {
+            return java.util.logging.Level.SEVERE;
+        } else if (log4jLevel.equals(Level.ALL)) {
+            return java.util.logging.Level.ALL;
+        } else if (log4jLevel.equals(Level.OFF)) {
+            return java.util.logging.Level.OFF;
+        }
+        return java.util.logging.Level.FINE;
+    }
+
+    private static class CustomJuliLevel extends java.util.logging.Level {
+        CustomJuliLevel(int value) {
+            super("CUSTOM" + value, value);
+        }
+    }
+
+    private static class CustomLog4jLevel extends Level {
+        CustomLog4jLevel(int value) {
+            super(value, "CUSTOM" + value, 7);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Category;
+import org.apache.log4j.Hierarchy;
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggerRepository;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.log4j.spi.RootLogger;
+
+/**
+ * Verifies that {@link JULBridgeHandler} rejects records below the log4j level before doing any
+ * conversion work.
+ */
+public class JULBridgeHandlerTest extends TestCase {
+
+    private static final int BATCH_RECORDS = 20000;
+    private static final int BATCHES = 5;
+
+    private LoggerRepository repository;
+    private MockAppender mockAppender;
+    private JULBridgeHandler handler;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        repository = LogManager.getLoggerRepository();
+        mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+        Logger.getRootLogger().setLevel(Level.WARN);
+        handler = new JULBridgeHandler(repository, new JULLog4jEventConverter(repository));
+    }
+
+    protected void tearDown() throws Exception {
+        LogManager.resetConfiguration();
+    }
+
+    public void testEnabledRecordIsDelivered() {
+        handler.publish(newRecord(java.util.logging.Level.WARNING));
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testRepositoryThresholdRejectsRecord() {
+        repository.setThreshold(Level.ERROR);
+        handler.publish(newRecord(java.util.logging.Level.WARNING));
+        assertEquals(0, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testLoggerLookupsAreCachedUntilReset() {
+        CountingHierarchy hierarchy = new CountingHierarchy();
+        hierarchy.getRootLogger().addAppender(new MockAppender());
+        JULBridgeHandler cachingHandler = new JULBridgeHandler(hierarchy,
+                new JULLog4jEventConverter(hierarchy));
+        try {
+            for (int i = 0; i < 3; i++) {
+                cachingHandler.publish(newRecord(java.util.logging.Level.WARNING));
+            }
+            assertEquals(1, hierarchy.lookups);
+
+            hierarchy.resetConfiguration();
+            cachingHandler.publish(newRecord(java.util.logging.Level.WARNING));
+            assertEquals(2, hierarchy.lookups);
+        } finally {
+            cachingHandler.close();
+        }
+        cachingHandler.publish(newRecord(java.util.logging.Level.WARNING));
+        assertEquals("Closed handler should not cache", 3, hierarchy.lookups);
+    }
+
+    public void testCallerIsOnlyInferredWhenPrinted() {
+        LogManager.resetConfiguration();
+        StringWriter output = new StringWriter();
+        Logger.getRootLogger().addAppender(
+                new WriterAppender(new PatternLayout("%-5p %c - %m%n"), output));
+        JULBridgeHandler locationHandler = new JULBridgeHandler(repository,
+                new JULLog4jEventConverter(repository));
+        try {
+            InferenceCountingRecord record = new InferenceCountingRecord();
+            locationHandler.publish(record);
+            assertEquals(0, record.inferences);
+
+            Logger.getRootLogger().addAppender(
+                    new WriterAppender(new PatternLayout("%-20C{1}.%M %m%n"), output));
+            record = new InferenceCountingRecord();
+            locationHandler.publish(record);
+            assertTrue(record.inferences > 0);
+        } finally {
+            locationHandler.close();
+        }
+    }
+
+    public void testProfilesWorkedOutDuringAChangeAreNotKept() {
+        LogManager.resetConfiguration();
+        final Logger logger = Logger.getLogger("foo.bar");
+        Logger.getRootLogger().addAppender(new WriterAppender(new PatternLayout("%m%n"),
+                new StringWriter()) {
+            private boolean changed;
+
+            public org.apache.log4j.Layout getLayout() {
+                if (!changed) {
+                    changed = true;
+                    logger.addAppender(new org.apache.log4j.AsyncAppender());
+                }
+                return super.getLayout();
+            }
+        });
+        AppenderChains chains = new AppenderChains(repository);
+        chains.start();
+        try {
+            assertFalse(chains.retainsEvents(logger));
+            assertTrue(chains.retainsEvents(logger));
+        } finally {
+            chains.stop();
+        }
+    }
+
+    public void testLocationConversionsAreRecognized() {
+        assertFalse(AppenderChains.printsLocation("%d %-5p [%t] %c{2} - %m%n"));
+        assertFalse(AppenderChains.printsLocation("100%% %m%n"));
+        assertFalse(AppenderChains.printsLocation("%%C %m%n"));
+        assertFalse(AppenderChains.printsLocation("%m%"));
+        assertTrue(AppenderChains.printsLocation("%C %m"));
+        assertTrue(AppenderChains.printsLocation("%m %-10.20M"));
+        assertTrue(AppenderChains.printsLocation("%%%L"));
+        assertTrue(AppenderChains.printsLocation("[%F] %m"));
+        assertTrue(AppenderChains.printsLocation("%.30l %m"));
+    }
+
+    public void testMetrics() {
+        handler.publish(newRecord(java.util.logging.Level.WARNING));
+        handler.publish(newRecord(java.util.logging.Level.FINE));
+        LogRecord other = newRecord(java.util.logging.Level.SEVERE);
+        other.setLoggerName("org.other");
+        handler.publish(other);
+
+        JULBridgeMetrics metrics = handler.getMetrics();
+        assertEquals(3, metrics.getReceivedCount());
+        assertEquals(1, metrics.getRejectedByLevelCount());
+        assertEquals(2, metrics.getConvertedCount());
+        assertEquals(2, metrics.getDeliveredCount());
+        assertEquals(-1, metrics.getQueueDepth());
+
+        JULBridgeMetricsMXBean.Counts fine = metrics.getCountsByLevel().get("FINE");
+        assertEquals(1, fine.getReceived());
+        assertEquals(1, fine.getRejectedByLevel());
+        assertEquals(0, fine.getDelivered());
+        assertEquals(1, metrics.getCountsByLevel().get("SEVERE").getDelivered());
+        assertEquals(1, metrics.getCountsByNamespace().get("foo").getReceived());
+        assertEquals(0, metrics.getCountsByNamespace().get("foo").getRejectedByLevel());
+        assertEquals(1, metrics.getCountsByNamespace().get("org").getDelivered());
+    }
+
+    public void testHandlersThatAreNeverClosedDoNotStayRegistered() {
+        LoggerRepository unwatched = new Hierarchy(new RootLogger(Level.DEBUG));
+        RepositoryWatcher watcher = RepositoryWatcher.getInstance(unwatched);
+        List<JULBridgeHandler> handlers = new ArrayList<JULBridgeHandler>();
+        for (int i = 0; i < 10; i++) {
+            handlers.add(new JULBridgeHandler(unwatched, new JULLog4jEventConverter(unwatched)));
+        }
+        assertEquals(20, watcher.getListenerCount());
+
+        handlers = null;
+        for (int i = 0; i < 100 && watcher.getListenerCount() > 0; i++) {
+            System.gc();
+        }
+        assertEquals(0, watcher.getListenerCount());
+    }
+
+    public void testDisabledRecordsAreNeverConverted() {
+        final int[] conversions = new int[1];
+        JULBridgeHandler countingHandler = new JULBridgeHandler(repository,
+                new JULLog4jEventConverter(repository) {
+                    LoggingEvent convert(LogRecord record, Category logger,
+                            boolean transientEvent, boolean needsLocation) {
+                        conversions[0]++;
+                        return super.convert(record, logger, transientEvent, needsLocation);
+                    }
+                });
+        try {
+            for (int i = 0; i < 100; i++) {
+                countingHandler.publish(newRecord(java.util.logging.Level.FINE));
+            }
+            assertEquals(0, conversions[0]);
+            assertEquals(0, mockAppender.observedLoggingEvents.size());
+
+            countingHandler.publish(newRecord(java.util.logging.Level.WARNING));
+            assertEquals(1, conversions[0]);
+        } finally {
+            countingHandler.close();
+        }
+    }
+
+    /**
+     * Counts the bytes the test thread allocates while publishing disabled records. The least
+     * over a few batches is taken, so the JIT still compiling the path or a one-off allocation
+     * elsewhere does not fail the test, and it must stay below one byte per record: a record that
+     * allocated anything at all would cost at least an object header.
+     */
+    public void testDisabledRecordsAllocateNothing() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory
+                .getThreadMXBean();
+        if (!threadMXBean.isThreadAllocatedMemorySupported()
+                || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        LogRecord record = newRecord(java.util.logging.Level.FINE);
+        long threadId = Thread.currentThread().getId();
+
+        long least = Long.MAX_VALUE;
+        for (int batch = 0; batch < BATCHES; batch++) {
+            long before = threadMXBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < BATCH_RECORDS; i++) {
+                handler.publish(record);
+            }
+            least = Math.min(least, threadMXBean.getThreadAllocatedBytes(threadId) - before);
+        }
+
+        assertEquals(0, mockAppender.observedLoggingEvents.size());
+        assertTrue("Disabled records allocated " + least + " bytes for " + BATCH_RECORDS
+                + " records", least < BATCH_RECORDS);
+    }
+
+    private static class CountingHierarchy extends Hierarchy {
+        int lookups;
+
+        CountingHierarchy() {
+            super(new RootLogger(Level.DEBUG));
+        }
+
+        public Logger getLogger(String name) {
+            lookups++;
+            return super.getLogger(name);
+        }
+    }
+
+    private static class InferenceCountingRecord extends LogRecord {
+        int inferences;
+
+        InferenceCountingRecord() {
+            super(java.util.logging.Level.WARNING, "message");
+            setLoggerName("foo.bar");
+        }
+
+        public String getSourceClassName() {
+            inferences++;
+            return super.getSourceClassName();
+        }
+
+        public String getSourceMethodName() {
+            inferences++;
+            return super.getSourceMethodName();
+        }
+    }
+
+    private LogRecord newRecord(java.util.logging.Level level) {
+        LogRecord record = new LogRecord(level, "message");
+        record.setLoggerName("foo.bar");
+        return record;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class JULBridgeLatencyTest extends TestCase {
+
+    private MockAppender mockAppender;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+        Logger.getRootLogger().setLevel(Level.INFO);
+    }
+
+    protected void tearDown() throws Exception {
+        LogManager.resetConfiguration();
+    }
+
+    public void testBucketsKeepValuesWithinPrecision() {
+        for (long value = 0; value < (1L << 36); value = value * 3 / 2 + 1) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(value));
+            assertTrue(value + " reported as " + highest, highest >= value);
+            assertTrue(value + " reported as " + highest,
+                    highest - value <= value / LatencyHistogram.SUB_BUCKETS);
+        }
+        assertEquals(1023, LatencyHistogram.bucketOf((1L << 36) - 1));
+    }
+
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 0.001);
+        assertEquals(500, snapshot.getValueAtPercentile(50), 16);
+        assertEquals(990, snapshot.getValueAtPercentile(99), 32);
+        assertEquals(1000, snapshot.getMax(), 32);
+
+        histogram.reset();
+        histogram.record(7);
+        snapshot = histogram.snapshot();
+        assertEquals(1, snapshot.getCount());
+        assertEquals(7, snapshot.getMax());
+    }
+
+    public void testThreadsAreMergedOnRead() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        histogram.record(j);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+        }
+        assertEquals(40000, histogram.snapshot().getCount());
+    }
+
+    public void testCountsOfEndedThreadsAreKept() throws Exception {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            Thread thread = new Thread() {
+                public void run() {
+                    histogram.record(5);
+                }
+            };
+            thread.start();
+            thread.join();
+        }
+        histogram.record(5);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(101, snapshot.getCount());
+        assertEquals(5, snapshot.getMax());
+        assertEquals(1, histogram.recorderCount());
+    }
+
+    public void testStagesOfPublish() {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().setLevel(Level.INFO);
+        Logger.getRootLogger().addAppender(
+                new WriterAppender(new PatternLayout("%C %m%n"), new StringWriter()));
+        JULLog4jEventConverter converter = new JULLog4jEventConverter(LogManager
+                .getLoggerRepository());
+        JULBridgeLatency latency = new JULBridgeLatency();
+        converter.setLatency(latency);
+        JULBridgeHandler handler = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                converter);
+        try {
+            handler.publish(newRecord(java.util.logging.Level.WARNING));
+            handler.publish(newRecord(java.util.logging.Level.FINE));
+        } finally {
+            handler.close();
+        }
+
+        Map<String, JULBridgeLatencyMXBean.Percentiles> stages = latency.getStages();
+        assertEquals(2, stages.get("lookup").getCount());
+        assertEquals(1, stages.get("inference").getCount());
+        assertEquals(1, stages.get("conversion").getCount());
+        assertEquals(1, stages.get("append").getCount());
+
+        latency.reset();
+        assertEquals(0, latency.getStages().get("lookup").getCount());
+    }
+
+    public void testSummaryIsLoggedOncePerInterval() {
+        JULBridgeLatency latency = new JULBridgeLatency(10);
+        latency.record(JULBridgeLatency.APPEND, 1234);
+        long due = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(20);
+        latency.summarizeIfDue(System.nanoTime());
+        assertEquals(0, mockAppender.observedLoggingEvents.size());
+
+        latency.summarizeIfDue(due);
+        latency.summarizeIfDue(due);
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        String summary = ((LoggingEvent) mockAppender.observedLoggingEvents.get(0))
+                .getRenderedMessage();
+        assertTrue(summary, summary.startsWith("JUL bridge latency (ns) lookup: n=0"));
+        assertTrue(summary, summary.indexOf("append: n=1 mean=1234") > 0);
+    }
+
+    private static LogRecord newRecord(java.util.logging.Level level) {
+        LogRecord record = new LogRecord(level, "message");
+        record.setLoggerName("foo.bar");
+        return record;
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.Hierarchy;
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.RootLogger;
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * Exercises a {@link JULBridgeLogManager} instance directly, as the LogManager of the test JVM is
+ * already chosen.
+ */
+public class JULBridgeLogManagerTest extends TestCase {
+
+    private static final String LOGGER_NAME = "foo.beep";
+
+    private JULBridgeLogManager logManager;
+    private MockAppender mockAppender;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+        Logger.getRootLogger().setLevel(org.apache.log4j.Level.INFO);
+        logManager = new JULBridgeLogManager();
+        logManager.readConfiguration();
+    }
+
+    protected void tearDown() throws Exception {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    public void testLoggersAreBackedByLog4j() {
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+        assertTrue(julLogger instanceof JULBridgeLogger);
+        assertSame(julLogger, logManager.getLogger(LOGGER_NAME));
+        assertSame(Logger.getLogger(LOGGER_NAME), ((JULBridgeLogger) julLogger).getCategory());
+        assertTrue(Collections.list(logManager.getLoggerNames()).contains(LOGGER_NAME));
+    }
+
+    public void testLookupsDoNotCreateLoggers() {
+        assertNull(logManager.getLogger("foo.unknown"));
+        assertFalse(Collections.list(logManager.getLoggerNames()).contains("foo.unknown"));
+
+        java.util.logging.Logger plain = new java.util.logging.Logger("foo.plain", null) {
+        };
+        assertTrue("Loggers of a subclass stay plain", logManager.addLogger(plain));
+        assertSame(plain, logManager.getLogger("foo.plain"));
+    }
+
+    public void testLoggersCreatedByTheJDKAreReplaced() {
+        // created by the LogManager of the test JVM, as Logger.getLogger does
+        java.util.logging.Logger created = java.util.logging.Logger.getLogger("foo.created");
+        assertFalse(logManager.addLogger(created));
+        assertTrue(logManager.getLogger("foo.created") instanceof JULBridgeLogger);
+        assertFalse(logManager.addLogger(created));
+    }
+
+    public void testLoggersUseAssimilatedRepository() {
+        Hierarchy repository = new Hierarchy(new RootLogger(org.apache.log4j.Level.INFO));
+        JULLog4jBridge.assimilate(repository);
+        JULBridgeLogger julLogger = logManager.createLogger(LOGGER_NAME);
+        assertSame(repository.getLogger(LOGGER_NAME), julLogger.getCategory());
+    }
+
+    public void testRecordsGoThroughAssimilatedHandler() {
+        JULLevelConverter everythingIsInfo = new JULLevelConverter() {
+            public org.apache.log4j.Level convertJuliLevel(Level juliLevel) {
+                return org.apache.log4j.Level.INFO;
+            }
+
+            public Level convertLog4jLevel(org.apache.log4j.Level log4jLevel) {
+                return Level.INFO;
+            }
+        };
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository(), everythingIsInfo);
+        JULBridgeHandler bridge = (JULBridgeHandler) JULLog4jBridge.getBridgeHandler();
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+
+        assertTrue(julLogger.isLoggable(Level.FINEST));
+        julLogger.finest("converted by the bridge");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals(org.apache.log4j.Level.INFO, ((LoggingEvent) mockAppender.observedLoggingEvents
+                .get(0)).getLevel());
+        assertEquals(1, bridge.getMetrics().getDeliveredCount());
+
+        JULLog4jBridge.repatriate();
+        CollectingHandler handler = new CollectingHandler();
+        julLogger.addHandler(handler);
+        julLogger.info("not bridged");
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals(1, handler.records.size());
+    }
+
+    public void testIsLoggableFollowsLog4jLevels() {
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+        assertTrue(julLogger.isLoggable(Level.INFO));
+        assertFalse(julLogger.isLoggable(Level.FINE));
+        assertNull(julLogger.getLevel());
+
+        Logger.getLogger("foo").setLevel(org.apache.log4j.Level.DEBUG);
+        assertTrue(julLogger.isLoggable(Level.FINE));
+
+        LogManager.getLoggerRepository().setThreshold(org.apache.log4j.Level.ERROR);
+        assertFalse(julLogger.isLoggable(Level.WARNING));
+    }
+
+    public void testSetLevelSetsLog4jLevel() {
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+        julLogger.setLevel(Level.FINEST);
+        assertEquals(org.apache.log4j.Level.TRACE, Logger.getLogger(LOGGER_NAME).getLevel());
+        assertEquals(Level.FINEST, julLogger.getLevel());
+
+        Logger.getLogger(LOGGER_NAME).setLevel(org.apache.log4j.Level.FATAL);
+        julLogger.setLevel(Level.SEVERE);
+        assertEquals("Equivalent level should be kept", org.apache.log4j.Level.FATAL, Logger
+                .getLogger(LOGGER_NAME).getLevel());
+
+        julLogger.setLevel(null);
+        assertNull(Logger.getLogger(LOGGER_NAME).getLevel());
+    }
+
+    public void testSetLevelReconfiguresLog4j() {
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+        julLogger.setLevel(Level.WARNING);
+
+        Logger.getLogger(LOGGER_NAME).info("log4j callers see the new level too");
+        assertEquals(0, mockAppender.observedLoggingEvents.size());
+        Logger.getLogger(LOGGER_NAME).warn("enabled");
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testRecordsArePostedToLog4jAndOwnHandlers() {
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+        CollectingHandler handler = new CollectingHandler();
+        julLogger.addHandler(handler);
+
+        julLogger.warning("posted");
+        julLogger.fine("disabled");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        LoggingEvent event = (LoggingEvent) mockAppender.observedLoggingEvents.get(0);
+        assertEquals(LOGGER_NAME, event.getLoggerName());
+        assertEquals("posted", event.getMessage());
+        assertEquals(1, handler.records.size());
+
+        logManager.reset();
+        assertEquals(0, julLogger.getHandlers().length);
+        assertTrue(handler.closed);
+    }
+
+    public void testFilterIsApplied() {
+        java.util.logging.Logger julLogger = logManager.createLogger(LOGGER_NAME);
+        julLogger.setFilter(new Filter() {
+            public boolean isLoggable(LogRecord record) {
+                return !record.getMessage().startsWith("secret");
+            }
+        });
+        julLogger.info("secret");
+        julLogger.info("public");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals("public", ((LoggingEvent) mockAppender.observedLoggingEvents.get(0))
+                .getMessage());
+    }
+
+    private static class CollectingHandler extends Handler {
+        final List<LogRecord> records = new CopyOnWriteArrayList<LogRecord>();
+        volatile boolean closed;
+
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+}
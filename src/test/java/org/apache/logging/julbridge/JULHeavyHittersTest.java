@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+
+public class JULHeavyHittersTest extends TestCase {
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        Logger.getRootLogger().addAppender(new MockAppender());
+    }
+
+    protected void tearDown() throws Exception {
+        LogManager.resetConfiguration();
+    }
+
+    public void testFrequentKeysAreFoundAmongManyRareOnes() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(16, 128);
+        for (int i = 0; i < 20000; i++) {
+            sketch.add("hot");
+            if (i % 2 == 0) {
+                sketch.add("warm");
+            }
+            sketch.add("cold" + i);
+        }
+
+        List<HeavyHitterSketch.Count> top = sketch.top(2);
+        assertEquals("hot", top.get(0).key);
+        assertEquals("warm", top.get(1).key);
+        long hot = top.get(0).current;
+        long warm = top.get(1).current;
+        assertTrue("Counts are never underestimated: " + hot, hot >= 20000);
+        assertTrue("Counts are never underestimated: " + warm, warm >= 10000);
+        assertTrue(hot + " overestimated too much", hot < 21000);
+        assertTrue(sketch.top(100).size() <= 16);
+    }
+
+    public void testQuietKeysLeaveAfterTwoWindows() {
+        HeavyHitterSketch sketch = new HeavyHitterSketch(16, 128);
+        sketch.add("quiet");
+        sketch.add("busy");
+        sketch.add("busy");
+
+        sketch.rollOver();
+        sketch.add("busy");
+        List<HeavyHitterSketch.Count> top = sketch.top(10);
+        assertEquals(2, top.size());
+        assertEquals("busy", top.get(0).key);
+        assertEquals(2, top.get(0).previous);
+        assertEquals(1, top.get(0).current);
+
+        sketch.rollOver();
+        top = sketch.top(10);
+        assertEquals(1, top.size());
+        assertEquals("busy", top.get(0).key);
+    }
+
+    public void testWindowsAreTimedByRecords() {
+        JULHeavyHitters heavyHitters = new JULHeavyHitters(16, 1000);
+        LogRecord record = newRecord("foo.chatty", "chatter {0}");
+        heavyHitters.record(record);
+        heavyHitters.record(record);
+        assertEquals(2, heavyHitters.getTopLoggers().get(0).getCount());
+
+        LogRecord later = newRecord("foo.chatty", "chatter {0}");
+        later.setMillis(record.getMillis() + 1500);
+        heavyHitters.record(later);
+        later.setMillis(record.getMillis() + 3000);
+        heavyHitters.record(later);
+        JULHeavyHittersMXBean.HeavyHitter top = heavyHitters.getTopLoggers().get(0);
+        assertEquals("Only the last complete window and the current one count", 2, top
+                .getCount());
+        assertTrue(top.getRecordsPerSecond() > 0);
+    }
+
+    public void testHandlerCountsConvertedRecords() {
+        JULLog4jEventConverter converter = new JULLog4jEventConverter(LogManager
+                .getLoggerRepository());
+        JULBridgeHandler handler = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                converter);
+        handler.publish(newRecord("org.noisy.Library", "not counted"));
+        assertNull(handler.getHeavyHitters());
+        converter.setHeavyHitters(new JULHeavyHitters());
+        try {
+            for (int i = 0; i < 10; i++) {
+                handler.publish(newRecord("org.noisy.Library", "retrying {0}"));
+            }
+            handler.publish(newRecord("com.quiet.Service", "started"));
+        } finally {
+            handler.close();
+        }
+
+        JULHeavyHitters heavyHitters = handler.getHeavyHitters();
+        heavyHitters.setTopN(1);
+        List<JULHeavyHittersMXBean.HeavyHitter> loggers = heavyHitters.getTopLoggers();
+        assertEquals(1, loggers.size());
+        assertEquals("org.noisy.Library", loggers.get(0).getKey());
+        assertEquals(10, loggers.get(0).getCount());
+        assertEquals("retrying {0}", heavyHitters.getTopMessages().get(0).getKey());
+        String dump = heavyHitters.dump();
+        assertTrue(dump, dump.indexOf("org.noisy.Library") > 0);
+        assertTrue(dump, dump.indexOf("com.quiet.Service") < 0);
+    }
+
+    private static LogRecord newRecord(String loggerName, String message) {
+        LogRecord record = new LogRecord(Level.INFO, message);
+        record.setLoggerName(loggerName);
+        return record;
+    }
+}
@@ -16,12 +16,25 @@
  */
 package org.apache.logging.julbridge;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Filter;
+import java.util.logging.Handler;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
 
 import junit.framework.TestCase;
 
 import org.apache.log4j.LogManager;
 import org.apache.log4j.Logger;
+import org.apache.log4j.LoggerRepositoryExImpl;
+import org.apache.log4j.PropertyConfigurator;
 import org.apache.log4j.spi.LocationInfo;
 import org.apache.log4j.spi.LoggingEvent;
 
@@ -72,6 +85,124 @@ public class JULLog4jBridgeTest extends TestCase {
         
     }
     
+    public void testBridgedRecordsAreLevelGated() {
+        JULLog4jBridge.bridgeJULLogger(LOGGER_NAME);
+        Logger.getLogger(LOGGER_NAME).setLevel(org.apache.log4j.Level.ERROR);
+        RecordingHandler handler = new RecordingHandler();
+        JULLogger.addHandler(handler);
+
+        JULLogger.warning("below log4j level");
+        JULLogger.severe("above log4j level");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals("above log4j level", ((LoggingEvent) mockAppender.observedLoggingEvents.get(0))
+                .getMessage());
+        assertEquals("JUL Handlers still get every record in tee mode", 2, handler.records.size());
+    }
+
+    public void testExclusiveBridge() {
+        RecordingHandler handler = new RecordingHandler();
+        JULLogger.addHandler(handler);
+        JULLog4jBridge.bridgeJULLogger(LOGGER_NAME, LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true);
+
+        JULLogger.warning("only in log4j");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals(0, handler.records.size());
+    }
+
+    public void testExistingFilterIsAskedFirst() {
+        JULLogger.setFilter(new Filter() {
+            public boolean isLoggable(LogRecord record) {
+                return !record.getMessage().startsWith("secret");
+            }
+        });
+        RecordingHandler handler = new RecordingHandler();
+        JULLogger.addHandler(handler);
+        JULLog4jBridge.bridgeJULLogger(LOGGER_NAME);
+
+        JULLogger.warning("secret");
+        JULLogger.warning("public");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertEquals("public", ((LoggingEvent) mockAppender.observedLoggingEvents.get(0))
+                .getMessage());
+        assertEquals(1, handler.records.size());
+    }
+
+    public void testBridgeJULNamespaces() {
+        java.util.logging.Logger sibling = java.util.logging.Logger.getLogger(LOGGER_NAME + "er");
+        java.util.logging.Logger child = java.util.logging.Logger.getLogger(LOGGER_NAME + ".child");
+        try {
+            JULLog4jBridge.bridgeJULNamespaces(LOGGER_NAME, "org.nowhere");
+
+            assertTrue(JULLogger.getFilter() instanceof JULBridgeFilter);
+            assertTrue(child.getFilter() instanceof JULBridgeFilter);
+            assertNull(sibling.getFilter());
+            assertNull(parentLogger.getFilter());
+
+            JULLog4jBridge.bridgeJULNamespaces(LOGGER_NAME);
+            child.warning("bridged once");
+            assertEquals(1, mockAppender.observedLoggingEvents.size());
+            assertEquals(LOGGER_NAME + ".child", ((LoggingEvent) mockAppender.observedLoggingEvents
+                    .get(0)).getLoggerName());
+
+            java.util.logging.Logger created = new java.util.logging.Logger(LOGGER_NAME
+                    + ".created", null) {
+            };
+            new JULBridgeLogManager().addLogger(created);
+            assertTrue(created.getFilter() instanceof JULBridgeFilter);
+        } finally {
+            sibling.setFilter(null);
+            child.setFilter(null);
+        }
+    }
+
+    public void testNamespaceBridgesLoggersCreatedLater() {
+        RecordingHandler handler = new RecordingHandler();
+        parentLogger.addHandler(handler);
+        JULLog4jBridge.bridgeJULNamespaces(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true, LOGGER_NAME);
+
+        java.util.logging.Logger late = java.util.logging.Logger.getLogger(LOGGER_NAME
+                + ".late.child");
+        try {
+            late.warning("first");
+            late.warning("second");
+
+            assertTrue(late.getFilter() instanceof JULBridgeFilter);
+            assertEquals(2, mockAppender.observedLoggingEvents.size());
+            assertEquals(LOGGER_NAME + ".late.child", ((LoggingEvent) mockAppender.observedLoggingEvents
+                    .get(0)).getLoggerName());
+            assertEquals("second", ((LoggingEvent) mockAppender.observedLoggingEvents.get(1))
+                    .getMessage());
+            assertEquals("only the first record reaches the JUL Handlers", 1, handler.records.size());
+        } finally {
+            late.setFilter(null);
+        }
+    }
+
+    public void testLoggerNameTrie() {
+        LoggerNameTrie<String> trie = LoggerNameTrie.<String> empty().with("sun.net", "net").with(
+                "sun.net.www", "www").with("com", "com");
+        assertEquals(3, trie.size());
+        assertEquals("net", trie.match("sun.net"));
+        assertEquals("net", trie.match("sun.net.spi"));
+        assertEquals("www", trie.match("sun.net.www.protocol"));
+        assertNull(trie.match("sun.netx"));
+        assertNull(trie.match("sun"));
+        assertNull(trie.match(""));
+        assertEquals("com", trie.match("com.sun.xml"));
+        assertEquals(0, LoggerNameTrie.empty().size());
+
+        LoggerNameTrie<String> all = trie.with("", "all").with("com", "com2");
+        assertEquals(4, all.size());
+        assertEquals("all", all.match("org"));
+        assertEquals("com2", all.match("com"));
+        assertEquals("com", trie.match("com"));
+    }
+
     public void testLocationInfo(){
         JULLog4jBridge.bridgeJULLogger(LOGGER_NAME);
         JULLogger.logp(Level.INFO, "com.mycompany.MyClass", "doBar", "something");
@@ -118,6 +249,82 @@ public class JULLog4jBridgeTest extends TestCase {
         assertEquals("Hello World", loggingEvent.getMessage());
         
     }
+    public void testMetricsAreRegistered() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(JULBridgeMetrics.DOMAIN + ":type=JULLog4jBridge");
+        JULLog4jBridge.assimilate();
+        assertTrue(server.isRegistered(name));
+
+        JULLogger.info("counted");
+        // JMX logs the attribute reads through JUL as well
+        assertTrue(((Long) server.getAttribute(name, "DeliveredCount")).longValue() >= 1);
+        TabularData byNamespace = (TabularData) server.getAttribute(name, "CountsByNamespace");
+        assertTrue(byNamespace.containsKey(new Object[] { PARENT_LOGGER }));
+
+        ObjectName heavyHitters = new ObjectName(JULBridgeMetrics.DOMAIN
+                + ":type=JULLog4jBridgeHeavyHitters");
+        assertFalse("heavy hitters are opt-in", server.isRegistered(heavyHitters));
+        JULLog4jEventConverter converter = new JULLog4jEventConverter();
+        converter.setHeavyHitters(new JULHeavyHitters());
+        JULLog4jBridge.assimilate(converter, false);
+        assertTrue(server.isRegistered(heavyHitters));
+
+        JULLog4jBridge.repatriate();
+        assertFalse(server.isRegistered(name));
+        assertFalse(server.isRegistered(heavyHitters));
+    }
+
+    public void testDirectRouting() {
+        JULLog4jBridge.assimilate(new JULLog4jEventConverter(), false, true);
+        assertFalse(JULLogger.getUseParentHandlers());
+        assertEquals(1, JULLogger.getHandlers().length);
+        assertEquals(1, JULRootLogger.getHandlers().length);
+
+        JULLogger.info("direct");
+        parentLogger.warning("parent");
+        java.util.logging.Logger.getLogger("foo.later").info("later");
+
+        assertEquals(3, mockAppender.observedLoggingEvents.size());
+        assertEquals(LOGGER_NAME, ((LoggingEvent) mockAppender.observedLoggingEvents.get(0))
+                .getLoggerName());
+        assertEquals(PARENT_LOGGER, ((LoggingEvent) mockAppender.observedLoggingEvents.get(1))
+                .getLoggerName());
+        assertEquals("foo.later", ((LoggingEvent) mockAppender.observedLoggingEvents.get(2))
+                .getLoggerName());
+
+        java.util.logging.Logger created = new java.util.logging.Logger("foo.created", null) {
+        };
+        new JULBridgeLogManager().addLogger(created);
+        assertFalse(created.getUseParentHandlers());
+
+        JULLog4jBridge.repatriate();
+        assertTrue(JULLogger.getUseParentHandlers());
+        assertEquals(0, JULLogger.getHandlers().length);
+    }
+
+    public void testDirectRoutingRestoresUseOfParentHandlers() {
+        java.util.logging.Logger detached = java.util.logging.Logger.getLogger("detached");
+        java.util.logging.Logger detachedChild = java.util.logging.Logger
+                .getLogger("detached.child");
+        detached.setUseParentHandlers(false);
+        try {
+            JULLog4jBridge.assimilate(new JULLog4jEventConverter(), false, true);
+            assertFalse(JULLogger.getUseParentHandlers());
+            assertEquals("records never reached the bridge", 0, detached.getHandlers().length);
+            assertEquals(0, detachedChild.getHandlers().length);
+            assertTrue(detachedChild.getUseParentHandlers());
+
+            detachedChild.info("detached");
+            assertEquals(0, mockAppender.observedLoggingEvents.size());
+
+            JULLog4jBridge.repatriate();
+            assertTrue(JULLogger.getUseParentHandlers());
+            assertFalse(detached.getUseParentHandlers());
+        } finally {
+            detached.setUseParentHandlers(true);
+        }
+    }
+
     public void testJULLevelConfigurationChanges(){
         assertEquals(Level.INFO, JULRootLogger.getLevel());
         
@@ -126,8 +333,153 @@ public class JULLog4jBridgeTest extends TestCase {
         JULLog4jBridge.assimilate();
         
         assertEquals(Level.WARNING, JULRootLogger.getLevel());
-        
-        
+
+
+    }
+
+    public void testPropagatedLevels() {
+        Logger.getRootLogger().setLevel(org.apache.log4j.Level.WARN);
+        Logger.getLogger(PARENT_LOGGER).setLevel(org.apache.log4j.Level.DEBUG);
+
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true);
+
+        assertEquals(Level.WARNING, JULRootLogger.getLevel());
+        assertEquals(Level.FINER, parentLogger.getLevel());
+        assertTrue(JULLogger.isLoggable(Level.FINE));
+        assertFalse(JULLogger.isLoggable(Level.FINEST));
+        assertFalse(java.util.logging.Logger.getLogger("bar").isLoggable(Level.INFO));
+
+        java.util.logging.Logger.getLogger("bar").info("dropped by JUL");
+        JULLogger.fine("delivered");
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testPropagatedLevelsHonourThreshold() {
+        Logger.getLogger(PARENT_LOGGER).setLevel(org.apache.log4j.Level.DEBUG);
+        LogManager.getLoggerRepository().setThreshold(org.apache.log4j.Level.ERROR);
+
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true);
+
+        assertEquals(Level.SEVERE, parentLogger.getLevel());
+        assertFalse(JULLogger.isLoggable(Level.WARNING));
+    }
+
+    public void testPropagatedLevelsFollowReconfiguration() throws Exception {
+        Logger.getLogger(PARENT_LOGGER).setLevel(org.apache.log4j.Level.DEBUG);
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true);
+        assertEquals(Level.FINER, parentLogger.getLevel());
+
+        Properties properties = new Properties();
+        properties.setProperty("log4j.rootLogger", "INFO, null");
+        properties.setProperty("log4j.appender.null", "org.apache.log4j.varia.NullAppender");
+        properties.setProperty("log4j.logger." + PARENT_LOGGER, "ERROR");
+        PropertyConfigurator.configure(properties);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!Level.SEVERE.equals(parentLogger.getLevel())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Level.SEVERE, parentLogger.getLevel());
+        assertEquals(Level.INFO, JULRootLogger.getLevel());
+    }
+
+    public void testReconfigurationOfRepositoryExIsPropagated() throws Exception {
+        LoggerRepositoryExImpl repository = new LoggerRepositoryExImpl(LogManager
+                .getLoggerRepository());
+        JULLog4jBridge.assimilate(repository, JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true);
+        assertNull(parentLogger.getLevel());
+
+        Logger log4jLogger = repository.getLogger(PARENT_LOGGER);
+        log4jLogger.setLevel(org.apache.log4j.Level.WARN);
+        log4jLogger.addAppender(new MockAppender());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (parentLogger.getLevel() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Level.WARNING, parentLogger.getLevel());
+    }
+
+    public void testLevelChangeIsPropagatedImmediately() {
+        JULLevelSynchronizer synchronizer = new JULLevelSynchronizer(LogManager
+                .getLoggerRepository(), JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER);
+        synchronizer.start();
+        try {
+            Logger log4jLogger = Logger.getLogger(PARENT_LOGGER);
+            log4jLogger.setLevel(org.apache.log4j.Level.WARN);
+            synchronizer.levelChanged(log4jLogger);
+            assertEquals(Level.WARNING, parentLogger.getLevel());
+
+            log4jLogger.setLevel(null);
+            synchronizer.levelChanged(log4jLogger);
+            assertNull(parentLogger.getLevel());
+        } finally {
+            synchronizer.stop();
+        }
+    }
+
+    public void testAppenderChangeCopiesOnlyThatCategory() {
+        JULLevelSynchronizer synchronizer = new JULLevelSynchronizer(LogManager
+                .getLoggerRepository(), JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER);
+        synchronizer.start();
+        try {
+            // as a configurator does: the level first, then the appenders
+            Logger.getLogger(LOGGER_NAME).setLevel(org.apache.log4j.Level.ERROR);
+            Logger log4jLogger = Logger.getLogger(PARENT_LOGGER);
+            log4jLogger.setLevel(org.apache.log4j.Level.WARN);
+            log4jLogger.addAppender(new MockAppender());
+
+            assertEquals(Level.WARNING, parentLogger.getLevel());
+            assertNull("not reported, so not copied", JULLogger.getLevel());
+        } finally {
+            synchronizer.stop();
+        }
+    }
+
+    public void testUnreportedLevelChangeIsPickedUpPeriodically() throws Exception {
+        JULLevelSynchronizer synchronizer = new JULLevelSynchronizer(LogManager
+                .getLoggerRepository(), JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER);
+        synchronizer.start();
+        synchronizer.setCheckInterval(20);
+        try {
+            Logger.getLogger(PARENT_LOGGER).setLevel(org.apache.log4j.Level.ERROR);
+            waitForLevel(Level.SEVERE);
+        } finally {
+            synchronizer.stop();
+        }
     }
 
+    private void waitForLevel(Level level) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!level.equals(parentLogger.getLevel()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(level, parentLogger.getLevel());
+    }
+
+    public void testSynchronizeLevels() {
+        JULLog4jBridge.assimilate(LogManager.getLoggerRepository(),
+                JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER, true);
+        Logger.getLogger(PARENT_LOGGER).setLevel(org.apache.log4j.Level.ERROR);
+        JULLog4jBridge.synchronizeLevels();
+        assertEquals(Level.SEVERE, parentLogger.getLevel());
+    }
+
+    private static class RecordingHandler extends Handler {
+        final List<LogRecord> records = new ArrayList<LogRecord>();
+
+        public void publish(LogRecord record) {
+            records.add(record);
+        }
+
+        public void flush() {
+        }
+
+        public void close() {
+        }
+    }
 }
@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class JULLoggingEventTest extends TestCase {
+
+    private static final String LOGGER_NAME = "foo.beep";
+
+    private JULLog4jEventConverter converter;
+    private MockAppender mockAppender;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+        converter = new JULLog4jEventConverter(LogManager.getLoggerRepository());
+        converter.setDeferred(true);
+    }
+
+    protected void tearDown() throws Exception {
+        JULLog4jBridge.repatriate();
+        LogManager.resetConfiguration();
+    }
+
+    public void testDeferredConversion() {
+        LogRecord record = newRecord();
+        LoggingEvent event = converter.convert(record);
+
+        assertTrue(event instanceof JULLoggingEvent);
+        assertSame(record, ((JULLoggingEvent) event).getLogRecord());
+        assertEquals(LOGGER_NAME, event.getLoggerName());
+        assertEquals(org.apache.log4j.Level.WARN, event.getLevel());
+        assertEquals("message", event.getMessage());
+        assertEquals(record.getMillis(), event.getTimeStamp());
+        assertFalse(event.locationInformationExists());
+
+        assertEquals("com.mycompany.MyClass", event.getLocationInformation().getClassName());
+        assertEquals("doBar", event.getLocationInformation().getMethodName());
+        assertSame(event.getLocationInformation(), event.getLocationInformation());
+        assertEquals(Thread.currentThread().getName(), event.getThreadName());
+        assertSame(record.getThrown(), event.getThrowableInformation().getThrowable());
+        assertEquals(record.getThrown().toString(), event.getThrowableStrRep()[0]);
+        assertTrue(event.getProperties().isEmpty());
+    }
+
+    public void testEagerAndDeferredConversionAgree() {
+        LogRecord record = newRecord();
+        LoggingEvent deferred = converter.convert(record);
+        LoggingEvent eager = new JULLog4jEventConverter(LogManager.getLoggerRepository())
+                .convert(record);
+
+        assertEquals(eager.getLoggerName(), deferred.getLoggerName());
+        assertEquals(eager.getLevel(), deferred.getLevel());
+        assertEquals(eager.getThreadName(), deferred.getThreadName());
+        assertEquals(eager.getLocationInformation().fullInfo, deferred
+                .getLocationInformation().fullInfo);
+        assertEquals(eager.getThrowableStrRep().length, deferred.getThrowableStrRep().length);
+        assertEquals(eager.getProperties(), deferred.getProperties());
+    }
+
+    public void testSerializedAsPlainLoggingEvent() throws Exception {
+        LoggingEvent event = converter.convert(newRecord());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(event);
+        out.close();
+        LoggingEvent copy = (LoggingEvent) new ObjectInputStream(new ByteArrayInputStream(bytes
+                .toByteArray())).readObject();
+
+        assertEquals(LoggingEvent.class, copy.getClass());
+        assertEquals(event.getLoggerName(), copy.getLoggerName());
+        assertEquals(event.getLevel(), copy.getLevel());
+        assertEquals("message", copy.getRenderedMessage());
+        assertEquals(event.getThreadName(), copy.getThreadName());
+        assertEquals(event.getTimeStamp(), copy.getTimeStamp());
+        assertEquals(event.getThrowableStrRep()[0], copy.getThrowableStrRep()[0]);
+    }
+
+    public void testAssimilateWithDeferredConversion() {
+        final String[] location = new String[2];
+        Logger.getRootLogger().addAppender(new MockAppender() {
+            public void doAppend(LoggingEvent event) {
+                location[0] = event.getLocationInformation().getClassName();
+                location[1] = event.getLocationInformation().getMethodName();
+            }
+        });
+        JULLog4jBridge.assimilate(converter, false);
+        java.util.logging.Logger.getLogger(LOGGER_NAME).info("bridged");
+
+        assertEquals(1, mockAppender.observedLoggingEvents.size());
+        assertTrue(mockAppender.observedLoggingEvents.get(0) instanceof JULLoggingEvent);
+        assertEquals(getClass().getName(), location[0]);
+        assertEquals("testAssimilateWithDeferredConversion", location[1]);
+    }
+
+    public void testLocationIsSharedForWriterAppenders() {
+        LogManager.resetConfiguration();
+        StringWriter output = new StringWriter();
+        LocationCapturingAppender appender = new LocationCapturingAppender(output);
+        Logger.getRootLogger().addAppender(appender);
+        converter.setReuseLocationInfo(true);
+        JULBridgeHandler handler = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                converter);
+        try {
+            LogRecord record = newRecord();
+            record.setThrown(null);
+            handler.publish(record);
+            LogRecord other = newRecord();
+            other.setSourceClassName("com.mycompany.Other");
+            other.setSourceMethodName("doBaz");
+            other.setThrown(null);
+            handler.publish(other);
+        } finally {
+            handler.close();
+        }
+
+        assertEquals(2, appender.locations.size());
+        assertSame(appender.locations.get(0), appender.locations.get(1));
+        String[] lines = output.toString().split("\\r?\\n");
+        assertEquals("com.mycompany.MyClass.doBar(?:?) doBar message", lines[0]);
+        assertEquals("com.mycompany.Other.doBaz(?:?) doBaz message", lines[1]);
+    }
+
+    public void testRetainingAppendersGetTheirOwnLocation() {
+        converter.setReuseLocationInfo(true);
+        JULBridgeHandler handler = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                converter);
+        try {
+            handler.publish(newRecord());
+            LogRecord other = newRecord();
+            other.setSourceClassName("com.mycompany.Other");
+            handler.publish(other);
+        } finally {
+            handler.close();
+        }
+
+        LoggingEvent first = (LoggingEvent) mockAppender.observedLoggingEvents.get(0);
+        LoggingEvent second = (LoggingEvent) mockAppender.observedLoggingEvents.get(1);
+        assertNotSame(first.getLocationInformation(), second.getLocationInformation());
+        assertEquals("com.mycompany.MyClass", first.getLocationInformation().getClassName());
+        assertEquals("com.mycompany.Other", second.getLocationInformation().getClassName());
+    }
+
+    public void testMDCOfCallingThread() {
+        JULLog4jEventConverter eager = new JULLog4jEventConverter(LogManager
+                .getLoggerRepository());
+        LoggingEvent eagerEvent;
+        LoggingEvent deferredEvent;
+        LogRecord otherThread = newRecord();
+        otherThread.setThreadID(otherThread.getThreadID() + 1);
+        MDC.put("user", "alice");
+        try {
+            assertTrue(eager.convert(newRecord()).getProperties().isEmpty());
+            assertTrue(converter.convert(newRecord()).getProperties().isEmpty());
+
+            eager.setCaptureMDC(true);
+            converter.setCaptureMDC(true);
+            assertTrue(eager.convert(otherThread).getProperties().isEmpty());
+            assertTrue(converter.convert(otherThread).getProperties().isEmpty());
+
+            eagerEvent = eager.convert(newRecord());
+            deferredEvent = converter.convert(newRecord());
+            assertEquals("alice", eagerEvent.getMDC("user"));
+            assertEquals("alice", deferredEvent.getMDC("user"));
+            eagerEvent.getMDCCopy();
+            deferredEvent.getMDCCopy();
+        } finally {
+            MDC.remove("user");
+        }
+        assertEquals("alice", eagerEvent.getMDC("user"));
+        assertEquals("alice", deferredEvent.getProperties().get("user"));
+    }
+
+    private static LogRecord newRecord() {
+        LogRecord record = new LogRecord(Level.WARNING, "message");
+        record.setLoggerName(LOGGER_NAME);
+        record.setSourceClassName("com.mycompany.MyClass");
+        record.setSourceMethodName("doBar");
+        record.setThrown(new IllegalStateException("boom"));
+        return record;
+    }
+
+    private static class LocationCapturingAppender extends WriterAppender {
+        final List<LocationInfo> locations = new ArrayList<LocationInfo>();
+
+        LocationCapturingAppender(StringWriter writer) {
+            super(new PatternLayout("%l %M %m%n"), writer);
+        }
+
+        protected void subAppend(LoggingEvent event) {
+            locations.add(event.getLocationInformation());
+            super.subAppend(event);
+        }
+    }
+}
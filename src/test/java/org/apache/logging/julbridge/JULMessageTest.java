@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ListResourceBundle;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class JULMessageTest extends TestCase {
+
+    private final JULLog4jEventConverter converter = new JULLog4jEventConverter(LogManager
+            .getLoggerRepository());
+
+    public void testPlainMessageIsNotWrapped() {
+        LogRecord record = newRecord("plain {0}");
+        assertEquals("plain {0}", JULMessage.of(record));
+        assertEquals("plain {0}", converter.convert(record).getMessage());
+    }
+
+    public void testParametersAreFormattedWhenRendered() {
+        CountingParameter parameter = new CountingParameter();
+        LogRecord record = newRecord("value {0} of {1}");
+        record.setParameters(new Object[] { parameter, "x" });
+
+        LoggingEvent event = converter.convert(record);
+        assertTrue(event.getMessage() instanceof JULMessage);
+        assertEquals("Parameters should not be formatted on conversion", 0, parameter.calls);
+
+        assertEquals("value counted of x", event.getRenderedMessage());
+        assertEquals("value counted of x", event.getRenderedMessage());
+        assertEquals(1, parameter.calls);
+    }
+
+    public void testSerializedEventCarriesFormattedMessage() throws Exception {
+        LogRecord record = newRecord("value {0}");
+        record.setParameters(new Object[] { "x" });
+        LoggingEvent event = converter.convert(record);
+        assertTrue(event.getMessage() instanceof JULMessage);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(event);
+        out.close();
+        LoggingEvent copy = (LoggingEvent) new ObjectInputStream(new ByteArrayInputStream(bytes
+                .toByteArray())).readObject();
+
+        assertEquals("value x", copy.getMessage());
+        assertEquals("value x", copy.getRenderedMessage());
+    }
+
+    public void testMatchesJULFormatter() {
+        String[] patterns = { "{0}", "{0,number,#.##} and {1}", "no reference {", "{x}",
+                "'{0}' quoted", "{1} {0}", "bad {0,nosuchtype}" };
+        Object[] parameters = { Double.valueOf(3.14159), "two" };
+        SimpleFormatter formatter = new SimpleFormatter();
+        for (int i = 0; i < patterns.length; i++) {
+            LogRecord record = newRecord(patterns[i]);
+            record.setParameters(parameters);
+            assertEquals(patterns[i], formatter.formatMessage(record), JULMessage.of(record)
+                    .toString());
+        }
+    }
+
+    public void testResourceBundleIsResolved() {
+        LogRecord record = newRecord("greeting");
+        record.setResourceBundle(new Messages());
+        record.setParameters(new Object[] { "world" });
+        assertEquals("hello world", JULMessage.of(record).toString());
+
+        LogRecord missing = newRecord("missing");
+        missing.setResourceBundle(new Messages());
+        assertEquals("missing", JULMessage.of(missing).toString());
+    }
+
+    public void testFormatCacheIsBounded() {
+        MessageFormatCache cache = new MessageFormatCache(4);
+        Object[] parameters = { "p" };
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + "p", cache.format(i + "{0}", parameters));
+            assertTrue(cache.size() <= 4);
+        }
+        assertEquals("9p", cache.format("9{0}", parameters));
+    }
+
+    private static LogRecord newRecord(String message) {
+        LogRecord record = new LogRecord(Level.INFO, message);
+        record.setLoggerName("foo.beep");
+        return record;
+    }
+
+    private static class CountingParameter {
+        int calls;
+
+        public String toString() {
+            calls++;
+            return "counted";
+        }
+    }
+
+    public static class Messages extends ListResourceBundle {
+        protected Object[][] getContents() {
+            return new Object[][] { { "greeting", "hello {0}" } };
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class JULRecordThrottleTest extends TestCase {
+
+    private static final double SLOW_RATE = 0.001;
+    private static final long NEVER = 3600000;
+
+    private MockAppender mockAppender;
+    private JULLog4jEventConverter converter;
+
+    protected void setUp() throws Exception {
+        LogManager.resetConfiguration();
+        mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+        converter = new JULLog4jEventConverter(LogManager.getLoggerRepository());
+    }
+
+    protected void tearDown() throws Exception {
+        LogManager.resetConfiguration();
+    }
+
+    public void testSimilarRecordsAreSuppressedAndSummarized() {
+        converter.setThrottle(new JULRecordThrottle(SLOW_RATE, 3, NEVER));
+        JULBridgeHandler handler = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                converter);
+        for (int i = 0; i < 10; i++) {
+            handler.publish(newRecord(Level.WARNING, "failed {0}"));
+        }
+        handler.publish(newRecord(Level.WARNING, "other message"));
+        handler.publish(newRecord(Level.SEVERE, "failed {0}"));
+        assertEquals(5, mockAppender.observedLoggingEvents.size());
+
+        handler.close();
+        assertEquals(6, mockAppender.observedLoggingEvents.size());
+        LoggingEvent summary = (LoggingEvent) mockAppender.observedLoggingEvents.get(5);
+        assertEquals("Suppressed 7 similar records: failed {0}", summary.getRenderedMessage());
+        assertEquals("foo.beep", summary.getLoggerName());
+        assertEquals(org.apache.log4j.Level.WARN, summary.getLevel());
+    }
+
+    public void testSummaryIsPostedWhenDue() {
+        converter.setThrottle(new JULRecordThrottle(SLOW_RATE, 1, 0));
+        JULBridgeHandler handler = new JULBridgeHandler(LogManager.getLoggerRepository(),
+                converter);
+        handler.publish(newRecord(Level.INFO, "message"));
+        handler.publish(newRecord(Level.INFO, "message"));
+
+        assertEquals(2, mockAppender.observedLoggingEvents.size());
+        assertEquals("Suppressed 1 similar records: message", ((LoggingEvent) mockAppender
+                .observedLoggingEvents.get(1)).getRenderedMessage());
+        handler.close();
+        assertEquals(2, mockAppender.observedLoggingEvents.size());
+    }
+
+    public void testBucketRefills() throws Exception {
+        JULRecordThrottle throttle = new JULRecordThrottle(100, 1, NEVER);
+        LogRecord record = newRecord(Level.INFO, "message");
+        assertTrue(throttle.tryAcquire(record));
+        assertFalse(throttle.tryAcquire(record));
+        Thread.sleep(50);
+        assertTrue(throttle.tryAcquire(record));
+    }
+
+    public void testCollidingGroupsStayThrottled() {
+        String[] messages = collidingMessages();
+        JULRecordThrottle throttle = new JULRecordThrottle(SLOW_RATE, 1, NEVER);
+        int admitted = 0;
+        for (int round = 0; round < 10; round++) {
+            for (int m = 0; m < 8; m++) {
+                if (throttle.tryAcquire(newRecord(Level.INFO, messages[m]))) {
+                    admitted++;
+                }
+            }
+        }
+        assertEquals("Eight groups fit in a set", 8, admitted);
+        assertEquals(0, throttle.getEvictions());
+
+        // takes over every slot of the set, evicting the groups above
+        for (int m = 8; m < messages.length; m++) {
+            throttle.tryAcquire(newRecord(Level.INFO, messages[m]));
+        }
+        long suppressed = 0;
+        List<LogRecord> summaries = throttle.takeSummaries(true);
+        for (int i = 0; i < summaries.size(); i++) {
+            suppressed += ((Long) summaries.get(i).getParameters()[0]).longValue();
+        }
+        assertEquals("Evicted groups keep their counts", 72, suppressed);
+    }
+
+    public void testFirstRecordOfEveryGroupIsLetThrough() {
+        String[] messages = collidingMessages();
+        JULRecordThrottle throttle = new JULRecordThrottle(SLOW_RATE, 1, NEVER);
+        for (int round = 0; round < 3; round++) {
+            for (int m = 0; m < messages.length; m++) {
+                LogRecord record = newRecord(Level.INFO, messages[m] + round);
+                assertTrue(record.getMessage(), throttle.tryAcquire(record));
+            }
+        }
+        assertTrue(throttle.getEvictions() > 0);
+        assertEquals(0, throttle.takeSummaries(true).size());
+    }
+
+    public void testEqualLevelsShareAGroup() {
+        JULRecordThrottle throttle = new JULRecordThrottle(SLOW_RATE, 1, NEVER);
+        assertTrue(throttle.tryAcquire(newRecord(new CustomLevel(), "message")));
+        assertFalse(throttle.tryAcquire(newRecord(new CustomLevel(), "message")));
+    }
+
+    /**
+     * @return messages all in the same set, as "Aa" and "BB" have the same String hash
+     */
+    private static String[] collidingMessages() {
+        String[] messages = new String[16];
+        for (int i = 0; i < messages.length; i++) {
+            StringBuilder message = new StringBuilder();
+            for (int bit = 3; bit >= 0; bit--) {
+                message.append((i & (1 << bit)) == 0 ? "Aa" : "BB");
+            }
+            messages[i] = message.toString();
+        }
+        return messages;
+    }
+
+    public void testConcurrentRecordsShareTheBurst() throws Exception {
+        final JULRecordThrottle throttle = new JULRecordThrottle(SLOW_RATE, 100, NEVER);
+        final int[] admitted = new int[4];
+        Thread[] threads = new Thread[admitted.length];
+        for (int t = 0; t < threads.length; t++) {
+            final int index = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        if (throttle.tryAcquire(newRecord(Level.WARNING, "message"))) {
+                            admitted[index]++;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        int total = 0;
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            total += admitted[t];
+        }
+        assertEquals(100, total);
+        LogRecord summary = (LogRecord) throttle.takeSummaries(true).get(0);
+        assertEquals(Long.valueOf(3900), summary.getParameters()[0]);
+    }
+
+    public void testAsyncHandlerThrottlesBeforeQueueing() {
+        converter.setThrottle(new JULRecordThrottle(SLOW_RATE, 2, NEVER));
+        AsyncJULBridgeHandler handler = new AsyncJULBridgeHandler(converter, 16,
+                AsyncJULBridgeHandler.OverflowPolicy.BLOCK);
+        for (int i = 0; i < 50; i++) {
+            handler.publish(newRecord(Level.WARNING, "message"));
+        }
+        handler.close();
+
+        assertEquals(0, handler.getDiscardedCount());
+        assertEquals(3, mockAppender.observedLoggingEvents.size());
+        assertEquals("Suppressed 48 similar records: message", ((LoggingEvent) mockAppender
+                .observedLoggingEvents.get(2)).getRenderedMessage());
+    }
+
+    private static class CustomLevel extends Level {
+        CustomLevel() {
+            super("NOTICE", 850);
+        }
+    }
+
+    private static LogRecord newRecord(Level level, String message) {
+        LogRecord record = new LogRecord(level, message);
+        record.setLoggerName("foo.beep");
+        record.setParameters(new Object[] { "x" });
+        return record;
+    }
+}
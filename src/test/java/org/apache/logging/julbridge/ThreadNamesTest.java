@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.logging.julbridge;
+
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import junit.framework.TestCase;
+
+import org.apache.log4j.LogManager;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+
+public class ThreadNamesTest extends TestCase {
+
+    public void testCurrentThreadName() {
+        LogRecord record = new LogRecord(Level.INFO, "message");
+        assertEquals(Thread.currentThread().getName(), ThreadNames.getName(record.getThreadID()));
+    }
+
+    public void testRenamedThreadIsPickedUp() {
+        String original = Thread.currentThread().getName();
+        try {
+            Thread.currentThread().setName("renamed");
+            LogRecord record = new LogRecord(Level.INFO, "message");
+            assertEquals("renamed", ThreadNames.getName(record.getThreadID()));
+        } finally {
+            Thread.currentThread().setName(original);
+        }
+    }
+
+    public void testNameOfAnotherThreadIsRemembered() throws Exception {
+        final LogRecord[] records = new LogRecord[1];
+        Thread logger = new Thread("remembered-thread") {
+            public void run() {
+                records[0] = new LogRecord(Level.INFO, "remembered");
+                ThreadNames.remember(records[0]);
+            }
+        };
+        logger.start();
+        logger.join();
+
+        assertEquals("remembered-thread", ThreadNames.getName(records[0].getThreadID()));
+        assertEquals("Unknown threads are reported by id", "123456789", ThreadNames
+                .getName(123456789));
+    }
+
+    public void testAsyncHandlerReportsLoggingThread() throws Exception {
+        LogManager.resetConfiguration();
+        MockAppender mockAppender = new MockAppender();
+        Logger.getRootLogger().addAppender(mockAppender);
+        final AsyncJULBridgeHandler handler = new AsyncJULBridgeHandler(LogManager
+                .getLoggerRepository(), JULLog4jEventConverter.DEFAULT_LEVEL_CONVERTER);
+        try {
+            Thread logger = new Thread("async-logging-thread") {
+                public void run() {
+                    LogRecord record = new LogRecord(Level.INFO, "message");
+                    record.setLoggerName("foo.beep");
+                    handler.publish(record);
+                }
+            };
+            logger.start();
+            logger.join();
+            handler.flush();
+
+            assertEquals("async-logging-thread", ((LoggingEvent) mockAppender.observedLoggingEvents
+                    .get(0)).getThreadName());
+        } finally {
+            handler.close();
+            LogManager.resetConfiguration();
+        }
+    }
+}